@@ -0,0 +1,68 @@
+package hello.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.tools.Server;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+
+/**
+ * 벤치마크용 H2 서버
+ * ConnectionConst.URL(tcp://localhost/~/test)을 그대로 사용하기 위해 같은 JVM 안에서 TCP 서버를 띄운다.
+ * 이미 H2 서버가 떠 있으면 그 서버를 사용한다.
+ */
+public abstract class EmbeddedH2 {
+
+    private static Server server;
+
+    public static synchronized void start() {
+        if (server == null) {
+            try {
+                server = Server.createTcpServer("-tcp", "-ifNotExists").start();
+            } catch (SQLException e) {
+                // 9092 포트를 이미 사용 중 -> 외부 H2 서버 사용
+                server = null;
+            }
+        }
+        initSchema();
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+    }
+
+    /**
+     * HikariCP 커넥션 풀
+     */
+    public static HikariDataSource pooledDataSource(int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setPoolName("BenchPool");
+        return dataSource;
+    }
+
+    private static void initSchema() {
+        HikariDataSource dataSource = pooledDataSource(1);
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    public static void clear(DataSource dataSource, String memberIdPrefix) {
+        new JdbcTemplate(dataSource)
+                .update("delete from member where member_id like ?", memberIdPrefix + "%");
+    }
+}
@@ -0,0 +1,100 @@
+package hello.jdbc.connection;
+
+import ch.qos.logback.classic.Logger;
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 획득 로그 비용: 기존 INFO 로그 vs ConnectionTrace (꺼짐 / 샘플링)
+ * gc 프로파일러의 gc.alloc.rate.norm 으로 호출당 할당량 비교
+ *
+ * ./gradlew jmh -PjmhInclude=ConnectionTraceBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ConnectionTraceBenchmark {
+
+    private static final org.slf4j.Logger legacyLog = LoggerFactory.getLogger("hello.jdbc.bench.LegacyConnectionLog");
+
+    private HikariDataSource dataSource;
+    private Connection con;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(1);
+        con = dataSource.getConnection();
+
+        FormattingNullAppender appender = new FormattingNullAppender();
+        appender.start();
+        Logger legacy = (Logger) legacyLog;
+        legacy.setLevel(ch.qos.logback.classic.Level.INFO);
+        legacy.setAdditive(false);
+        legacy.addAppender(appender);
+
+        Logger trace = (Logger) LoggerFactory.getLogger(ConnectionTrace.class);
+        trace.setAdditive(false);
+        trace.addAppender(appender);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        con.close();
+        dataSource.close();
+    }
+
+    /**
+     * 변경 전: 매번 log.info("get connection={}, class={}", con, con.getClass())
+     */
+    @Benchmark
+    public void legacyInfoLog() {
+        legacyLog.info("get connection={}, class={}", con, con.getClass());
+    }
+
+    /**
+     * 변경 후 기본 상태: DEBUG 꺼짐
+     */
+    @Benchmark
+    public void traceDisabled(TraceDisabled level) {
+        ConnectionTrace.trace(con);
+    }
+
+    /**
+     * DEBUG 켜고 100 번에 한 번 기록
+     */
+    @Benchmark
+    public void traceSampled(TraceSampled level) {
+        ConnectionTrace.trace(con);
+    }
+
+    /**
+     * 로그 레벨, 샘플링 설정은 측정 전에 한 번 (벤치마크마다 자기 State 의 @Setup)
+     */
+    @State(Scope.Benchmark)
+    public static class TraceDisabled {
+        @Setup(Level.Trial)
+        public void setUp() {
+            setTraceLevel(ch.qos.logback.classic.Level.INFO, 1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TraceSampled {
+        @Setup(Level.Trial)
+        public void setUp() {
+            setTraceLevel(ch.qos.logback.classic.Level.DEBUG, 100);
+        }
+    }
+
+    private static void setTraceLevel(ch.qos.logback.classic.Level level, int sampleRate) {
+        Logger trace = (Logger) LoggerFactory.getLogger(ConnectionTrace.class);
+        trace.setLevel(level);
+        ConnectionTrace.setSampleRate(sampleRate);
+    }
+}
@@ -0,0 +1,49 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 획득 + 반납 비용 비교
+ * driverManager: DBConeectionUtil.getConnection() - 호출마다 TCP 연결 + 인증
+ * pooled: DataSourceFactory 풀 (사전 준비, 대여 시 검증)
+ *
+ * ./gradlew jmh -PjmhInclude=DataSourceBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DataSourceBenchmark {
+
+    private HikariDataSource pooled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        pooled = DataSourceFactory.pooledDataSource("BenchPooled", 10, 10, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pooled.close();
+    }
+
+    @Benchmark
+    public boolean driverManager() throws SQLException {
+        try (Connection con = DBConeectionUtil.getConnection()) {
+            return con.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    public boolean pooled() throws SQLException {
+        try (Connection con = pooled.getConnection()) {
+            return con.getAutoCommit();
+        }
+    }
+}
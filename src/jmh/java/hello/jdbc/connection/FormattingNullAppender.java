@@ -0,0 +1,16 @@
+package hello.jdbc.connection;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+
+/**
+ * 메시지 포맷까지만 하고 출력은 하지 않는 appender
+ * 콘솔 I/O 없이 로그 한 줄을 만드는 비용(toString, 포맷, 할당)만 측정
+ */
+public class FormattingNullAppender extends AppenderBase<ILoggingEvent> {
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.getFormattedMessage();
+    }
+}
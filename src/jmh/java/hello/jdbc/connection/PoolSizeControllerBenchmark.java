@@ -0,0 +1,109 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import hello.jdbc.metrics.MetricsDataSource;
+import hello.jdbc.metrics.PoolMonitor;
+import hello.jdbc.metrics.StatementMetrics;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.service.MemberServiceV4;
+import hello.jdbc.service.TransactionalProxy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 스레드 수별 accountTransfer 처리 시간 - 풀 크기 고정(MIN_POOL) vs PoolSizeController 자동 조절(MIN_POOL ~ MAX_POOL)
+ * 스레드마다 자기 회원 두 명 사이에서만 이체하므로 락 경합 없이 커넥션 풀만 병목이 된다.
+ * 한 번의 연산 = threads 개 스레드가 TRANSFERS_PER_THREAD 건씩 이체, 초당 이체 수 = threads * TRANSFERS_PER_THREAD / 연산 시간
+ * 자동 조절은 워밍업 동안 풀을 키우므로 측정 구간은 조절된 크기에서의 처리량이다.
+ *
+ * ./gradlew jmh -PjmhInclude=PoolSizeControllerBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PoolSizeControllerBenchmark {
+
+    private static final String PREFIX = "psc";
+    private static final int MIN_POOL = 2;
+    private static final int MAX_POOL = 32;
+    private static final int TRANSFERS_PER_THREAD = 20;
+
+    @Param({"false", "true"})
+    private boolean adaptive;
+
+    @Param({"1", "16", "256"})
+    private int threads;
+
+    private HikariDataSource pool;
+    private PoolMonitor monitor;
+    private PoolSizeController controller;
+    private MemberServiceV4 memberService;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        pool = DataSourceFactory.pooledDataSource("ControllerBenchPool", MIN_POOL, MIN_POOL, true);
+        monitor = new PoolMonitor(pool, 0);
+        StatementMetrics statementMetrics = new StatementMetrics(Long.MAX_VALUE / 1_000_000);
+        DataSource dataSource = new MetricsDataSource(monitor.dataSource(), statementMetrics);
+        EmbeddedH2.clear(dataSource, PREFIX);
+
+        MemberRepository memberRepository = new MemberRepositoryV4_2(dataSource);
+        List<Member> members = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            members.add(new Member(PREFIX + t + "A", 1_000_000_000));
+            members.add(new Member(PREFIX + t + "B", 1_000_000_000));
+        }
+        memberRepository.saveAll(members);
+        memberService = TransactionalProxy.create(new MemberServiceV4(memberRepository), new DataSourceTransactionManager(dataSource));
+
+        if (adaptive) {
+            controller = new PoolSizeController(pool, monitor, statementMetrics, MIN_POOL, MAX_POOL, 2);
+            controller.start(100);
+        }
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        if (controller != null) {
+            controller.close();
+        }
+        monitor.close();
+        EmbeddedH2.clear(pool, PREFIX);
+        pool.close();
+    }
+
+    @Benchmark
+    public int transfers() throws Exception {
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            String memberA = PREFIX + t + "A";
+            String memberB = PREFIX + t + "B";
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    boolean forward = i % 2 == 0;
+                    memberService.accountTransfer(forward ? memberA : memberB, forward ? memberB : memberA, 1);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return threads * TRANSFERS_PER_THREAD;
+    }
+}
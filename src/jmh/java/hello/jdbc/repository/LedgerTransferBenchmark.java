@@ -0,0 +1,79 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import hello.jdbc.service.LedgerTransferService;
+import hello.jdbc.service.MemberServiceV4;
+import hello.jdbc.service.TransactionalProxy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 회원에게 이체가 몰릴 때 제자리 갱신 vs 원장 추가
+ * 8 스레드가 무작위 출금 계좌 -> 인기 회원
+ * - inPlace: accountTransferAtomic (member.money 두 번 갱신, 인기 회원 행에서 줄 섬)
+ * - ledger: 원장 한 행 추가, 반영기는 100ms 마다 실행
+ *
+ * ./gradlew jmh -PjmhInclude=LedgerTransferBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class LedgerTransferBenchmark {
+
+    private static final String PREFIX = "benchLg";
+    private static final String HOT = "benchLgHot";
+    private static final int SOURCES = 64;
+
+    private HikariDataSource dataSource;
+    private MemberServiceV4 inPlace;
+    private LedgerTransferService ledger;
+    private LedgerCompactor compactor;
+    private LedgerMemberRepository ledgerRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(8);
+        EmbeddedH2.clear(dataSource, PREFIX);
+
+        MemberRepository memberRepository = new MemberRepositoryV4_2(dataSource);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < SOURCES; i++) {
+            members.add(new Member(PREFIX + i, 1_000_000_000));
+        }
+        members.add(new Member(HOT, 0));
+        memberRepository.saveAll(members);
+
+        inPlace = TransactionalProxy.create(new MemberServiceV4(memberRepository), new DataSourceTransactionManager(dataSource));
+        ledgerRepository = new LedgerMemberRepository(memberRepository, dataSource);
+        ledger = new LedgerTransferService(ledgerRepository);
+        compactor = new LedgerCompactor(dataSource, 10_000);
+        compactor.start(100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compactor.close();
+        ledgerRepository.delete(HOT);
+        EmbeddedH2.clear(dataSource, PREFIX);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void inPlace() {
+        inPlace.accountTransferAtomic(PREFIX + ThreadLocalRandom.current().nextInt(SOURCES), HOT, 1);
+    }
+
+    @Benchmark
+    public String ledger() {
+        return ledger.accountTransfer(PREFIX + ThreadLocalRandom.current().nextInt(SOURCES), HOT, 1);
+    }
+}
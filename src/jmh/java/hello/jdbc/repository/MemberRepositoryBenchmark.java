@@ -0,0 +1,146 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemberRepository 세대별(V0 ~ V5) save/findById/update/delete 비교
+ * V0 는 호출마다 DriverManager 로 새 커넥션, 나머지는 HikariCP DataSource 사용
+ *
+ * ./gradlew jmh -PjmhInclude=MemberRepositoryBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MemberRepositoryBenchmark {
+
+    private static final String HOT_MEMBER = "benchHot";
+
+    @Param({"V0", "V1", "V2", "V3", "V4_1", "V4_2", "V5"})
+    private String version;
+
+    private HikariDataSource dataSource;
+    private Crud repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(10);
+        EmbeddedH2.clear(dataSource, "bench");
+        repository = crud(version);
+        repository.save(new Member(HOT_MEMBER, 10000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedH2.clear(dataSource, "bench");
+        dataSource.close();
+    }
+
+    @State(Scope.Thread)
+    public static class MemberId {
+        private static int sequence;
+        private String memberId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            synchronized (MemberId.class) {
+                memberId = "bench" + sequence++;
+            }
+        }
+    }
+
+    /**
+     * save -> findById -> update -> delete 한 사이클
+     */
+    @Benchmark
+    public Member crud(MemberId id) throws Exception {
+        repository.save(new Member(id.memberId, 10000));
+        Member findMember = repository.findById(id.memberId);
+        repository.update(id.memberId, findMember.getMoney() + 1);
+        repository.delete(id.memberId);
+        return findMember;
+    }
+
+    /**
+     * 이미 저장된 회원 단건 조회
+     */
+    @Benchmark
+    public Member findById() throws Exception {
+        return repository.findById(HOT_MEMBER);
+    }
+
+    /**
+     * 세대마다 시그니처가 달라서(체크 예외, 인터페이스 유무) 공통 형태로 맞춤
+     */
+    interface Crud {
+        Member save(Member member) throws Exception;
+        Member findById(String memberId) throws Exception;
+        void update(String memberId, int money) throws Exception;
+        void delete(String memberId) throws Exception;
+    }
+
+    private Crud crud(String version) {
+        switch (version) {
+            case "V0": {
+                MemberRepositoryV0 repository = new MemberRepositoryV0();
+                return new Crud() {
+                    public Member save(Member member) throws Exception { return repository.save(member); }
+                    public Member findById(String memberId) throws Exception { return repository.findById(memberId); }
+                    public void update(String memberId, int money) throws Exception { repository.update(memberId, money); }
+                    public void delete(String memberId) throws Exception { repository.delete(memberId); }
+                };
+            }
+            case "V1": {
+                MemberRepositoryV1 repository = new MemberRepositoryV1(dataSource);
+                return new Crud() {
+                    public Member save(Member member) throws Exception { return repository.save(member); }
+                    public Member findById(String memberId) throws Exception { return repository.findById(memberId); }
+                    public void update(String memberId, int money) throws Exception { repository.update(memberId, money); }
+                    public void delete(String memberId) throws Exception { repository.delete(memberId); }
+                };
+            }
+            case "V2": {
+                MemberRepositoryV2 repository = new MemberRepositoryV2(dataSource);
+                return new Crud() {
+                    public Member save(Member member) throws Exception { return repository.save(member); }
+                    public Member findById(String memberId) throws Exception { return repository.findById(memberId); }
+                    public void update(String memberId, int money) throws Exception { repository.update(memberId, money); }
+                    public void delete(String memberId) throws Exception { repository.delete(memberId); }
+                };
+            }
+            case "V3":
+                return exRepository(new MemberRepositoryV3(dataSource));
+            case "V4_1":
+                return repository(new MemberRepositoryV4_1(dataSource));
+            case "V4_2":
+                return repository(new MemberRepositoryV4_2(dataSource));
+            case "V5":
+                return repository(new MemberRepositoryV5(dataSource));
+            default:
+                throw new IllegalArgumentException("unknown version=" + version);
+        }
+    }
+
+    private static Crud exRepository(MemberRepositoryEx repository) {
+        return new Crud() {
+            public Member save(Member member) throws Exception { return repository.save(member); }
+            public Member findById(String memberId) throws Exception { return repository.findById(memberId); }
+            public void update(String memberId, int money) throws Exception { repository.update(memberId, money); }
+            public void delete(String memberId) throws Exception { repository.delete(memberId); }
+        };
+    }
+
+    private static Crud repository(MemberRepository repository) {
+        return new Crud() {
+            public Member save(Member member) { return repository.save(member); }
+            public Member findById(String memberId) { return repository.findById(memberId); }
+            public void update(String memberId, int money) { repository.update(memberId, money); }
+            public void delete(String memberId) { repository.delete(memberId); }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 행 매핑 비용 비교 (1000 행 전체 조회)
+ * - byName: select * + rs.getString("member_id") (기존 V5 방식)
+ * - byIndex: 컬럼 명시 + MemberRowMapper.INSTANCE
+ * - inPlace: 컬럼 명시 + Member 하나에 채워서 순회 (forEachMemberInPlace)
+ *
+ * ./gradlew jmh -PjmhInclude=RowMappingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    private static final String PREFIX = "benchRm";
+    private static final int ROWS = 1000;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate template;
+    private MemberRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(1);
+        EmbeddedH2.clear(dataSource, PREFIX);
+        template = new JdbcTemplate(dataSource);
+        repository = new MemberRepositoryV5(dataSource);
+
+        List<Member> members = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            members.add(new Member(PREFIX + i, i));
+        }
+        repository.saveAll(members);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedH2.clear(dataSource, PREFIX);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Member> byName() {
+        return template.query("select * from member where member_id like '" + PREFIX + "%'", (rs, rowNum) -> {
+            Member member = new Member();
+            member.setMemberId(rs.getString("member_id"));
+            member.setMoney(rs.getInt("money"));
+            return member;
+        });
+    }
+
+    @Benchmark
+    public List<Member> byIndex() {
+        return template.query("select " + MemberRowMapper.COLUMNS + " from member where member_id like '" + PREFIX + "%'",
+                MemberRowMapper.INSTANCE);
+    }
+
+    @Benchmark
+    public void inPlace(Blackhole blackhole) {
+        repository.forEachMemberInPlace(ROWS, member -> blackhole.consume(member.getMoney()));
+    }
+}
@@ -0,0 +1,71 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import hello.jdbc.service.MemberServiceV4;
+import hello.jdbc.service.TransactionalProxy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 회원 한 명에게 입금이 몰릴 때 분할 행 수별 처리량
+ * 8 스레드가 무작위 출금 계좌 -> 인기 회원으로 accountTransferAtomic (출금 + 입금 한 트랜잭션)
+ * shards 0: 분할 없이 member 행 하나
+ *
+ * ./gradlew jmh -PjmhInclude=ShardedCreditBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class ShardedCreditBenchmark {
+
+    private static final String PREFIX = "benchSh";
+    private static final String HOT = "benchShHot";
+    private static final int SOURCES = 64;
+
+    @Param({"0", "1", "4", "16"})
+    private int shards;
+
+    private HikariDataSource dataSource;
+    private MemberServiceV4 memberService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(8);
+        EmbeddedH2.clear(dataSource, PREFIX);
+
+        ShardedMemberRepository repository = new ShardedMemberRepository(new MemberRepositoryV4_2(dataSource), dataSource,
+                Math.max(shards, 1), ShardedMemberRepository.ShardSelection.RANDOM);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < SOURCES; i++) {
+            members.add(new Member(PREFIX + i, 1_000_000_000));
+        }
+        members.add(new Member(HOT, 0));
+        repository.saveAll(members);
+        if (shards > 0) {
+            repository.enableShards(HOT);
+        }
+        memberService = TransactionalProxy.create(new MemberServiceV4(repository), new DataSourceTransactionManager(dataSource));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new ShardedMemberRepository(new MemberRepositoryV4_2(dataSource), dataSource, 1,
+                ShardedMemberRepository.ShardSelection.RANDOM).delete(HOT);
+        EmbeddedH2.clear(dataSource, PREFIX);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void credit() {
+        memberService.accountTransferAtomic(PREFIX + ThreadLocalRandom.current().nextInt(SOURCES), HOT, 1);
+    }
+}
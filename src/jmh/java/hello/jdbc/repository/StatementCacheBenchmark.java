@@ -0,0 +1,60 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 트랜잭션 범위 PreparedStatement 재사용 효과
+ * 한 트랜잭션 = 계좌이체 (findById 2번, update 2번), statementCacheSize 0 이면 매번 prepare
+ *
+ * ./gradlew jmh -PjmhInclude=StatementCacheBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StatementCacheBenchmark {
+
+    private static final String MEMBER_A = "benchStA";
+    private static final String MEMBER_B = "benchStB";
+
+    @Param({"0", "16"})
+    private int statementCacheSize;
+
+    private HikariDataSource dataSource;
+    private MemberRepository repository;
+    private TransactionTemplate txTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(1);
+        EmbeddedH2.clear(dataSource, "benchSt");
+        repository = new MemberRepositoryV4_2(dataSource, 1000, statementCacheSize);
+        repository.save(new Member(MEMBER_A, 1_000_000_000));
+        repository.save(new Member(MEMBER_B, 0));
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedH2.clear(dataSource, "benchSt");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Member transfer() {
+        return txTemplate.execute(status -> {
+            Member fromMember = repository.findById(MEMBER_A);
+            Member toMember = repository.findById(MEMBER_B);
+            repository.update(MEMBER_A, fromMember.getMoney() - 1);
+            repository.update(MEMBER_B, toMember.getMoney() + 1);
+            return toMember;
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 충돌(이미 있는 회원) 처리 비용
+ * - insertThenUpdate: insert -> DuplicateKeyException -> update (예외 생성 + 왕복 2번)
+ * - upsert: merge 한 문장
+ *
+ * ./gradlew jmh -PjmhInclude=UpsertBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UpsertBenchmark {
+
+    private static final String MEMBER_ID = "benchUpA";
+
+    private HikariDataSource dataSource;
+    private MemberRepository repository;
+    private int money;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(1);
+        EmbeddedH2.clear(dataSource, "benchUp");
+        repository = new MemberRepositoryV4_2(dataSource);
+        repository.save(new Member(MEMBER_ID, 0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedH2.clear(dataSource, "benchUp");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean insertThenUpdate() {
+        try {
+            repository.save(new Member(MEMBER_ID, ++money));
+            return true;
+        } catch (DuplicateKeyException e) {
+            repository.update(MEMBER_ID, money);
+            return false;
+        }
+    }
+
+    @Benchmark
+    public UpsertResult upsert() {
+        return repository.upsert(new Member(MEMBER_ID, ++money));
+    }
+}
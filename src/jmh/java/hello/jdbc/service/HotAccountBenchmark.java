@@ -0,0 +1,91 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 계좌 경합: 16 스레드, 커넥션 풀 8
+ * hotRatio 비율의 이체가 인기 계좌(benchHt0)에서 출금, 나머지는 무작위 두 계좌 사이
+ * - dbLocks: DB 행 잠금만, 인기 계좌를 기다리는 스레드가 커넥션을 붙잡고 있음
+ * - striped / stripedFair: 트랜잭션 전에 줄무늬 락에서 기다림
+ *
+ * ./gradlew jmh -PjmhInclude=HotAccountBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(16)
+public class HotAccountBenchmark {
+
+    private static final String PREFIX = "benchHt";
+    private static final int ACCOUNTS = 256;
+
+    @Param({"0.1", "0.5", "1.0"})
+    private double hotRatio;
+
+    private HikariDataSource dataSource;
+    private LockRetryTransferService dbLocks;
+    private StripedLockTransferService striped;
+    private StripedLockTransferService stripedFair;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(8);
+        dataSource.setConnectionTimeout(TimeUnit.MINUTES.toMillis(1));
+        EmbeddedH2.clear(dataSource, PREFIX);
+
+        MemberRepository memberRepository = new MemberRepositoryV4_2(dataSource);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            members.add(new Member(PREFIX + i, 1_000_000_000));
+        }
+        memberRepository.saveAll(members);
+
+        MemberServiceV4 memberService = TransactionalProxy.create(new MemberServiceV4(memberRepository), new DataSourceTransactionManager(dataSource));
+        dbLocks = new LockRetryTransferService(memberService, 100, 1);
+        striped = new StripedLockTransferService(memberService, new StripedLockManager(1024, false), 60_000);
+        stripedFair = new StripedLockTransferService(memberService, new StripedLockManager(1024, true), 60_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedH2.clear(dataSource, PREFIX);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void dbLocks() {
+        int[] pair = pair();
+        dbLocks.accountTransfer(PREFIX + pair[0], PREFIX + pair[1], 1);
+    }
+
+    @Benchmark
+    public void striped() {
+        int[] pair = pair();
+        striped.accountTransfer(PREFIX + pair[0], PREFIX + pair[1], 1);
+    }
+
+    @Benchmark
+    public void stripedFair() {
+        int[] pair = pair();
+        stripedFair.accountTransfer(PREFIX + pair[0], PREFIX + pair[1], 1);
+    }
+
+    private int[] pair() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextDouble() < hotRatio ? 0 : random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        return new int[]{from, to};
+    }
+}
@@ -0,0 +1,93 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.TransferReceiptRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * idempotency key 비용: 4 스레드, 무작위 두 계좌 사이 이체
+ * 번호가 작은 계좌 -> 큰 계좌 방향으로만 이체 (plain 은 출금 -> 입금 순서로 잠그므로 반대 방향이 섞이면 데드락)
+ * - plain: MemberServiceV4.accountTransferAtomic (key 없음)
+ * - newKey: 매번 새 key, 영수증 insert 가 추가되는 일반 경로
+ * - cachedDuplicate: 이미 처리한 key 재요청, 최근 key 캐시에서 바로 반환
+ *
+ * ./gradlew jmh -PjmhInclude=IdempotentTransferBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class IdempotentTransferBenchmark {
+
+    private static final String PREFIX = "benchId";
+    private static final int ACCOUNTS = 256;
+
+    private HikariDataSource dataSource;
+    private MemberServiceV4 plain;
+    private IdempotentTransferService idempotent;
+    private String duplicateKey;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(4);
+        EmbeddedH2.clear(dataSource, PREFIX);
+        new JdbcTemplate(dataSource).update("delete from transfer_receipt where from_id like ?", PREFIX + "%");
+
+        MemberRepository memberRepository = new MemberRepositoryV4_2(dataSource);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            members.add(new Member(PREFIX + i, 1_000_000_000));
+        }
+        memberRepository.saveAll(members);
+
+        plain = TransactionalProxy.create(new MemberServiceV4(memberRepository), new DataSourceTransactionManager(dataSource));
+        idempotent = new IdempotentTransferService(plain, new TransferReceiptRepository(dataSource),
+                new DataSourceTransactionManager(dataSource), 10_000);
+        duplicateKey = UUID.randomUUID().toString();
+        idempotent.accountTransfer(duplicateKey, PREFIX + 0, PREFIX + 1, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new JdbcTemplate(dataSource).update("delete from transfer_receipt where from_id like ?", PREFIX + "%");
+        EmbeddedH2.clear(dataSource, PREFIX);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void plain() {
+        int[] pair = pair();
+        plain.accountTransferAtomic(PREFIX + pair[0], PREFIX + pair[1], 1);
+    }
+
+    @Benchmark
+    public void newKey() {
+        int[] pair = pair();
+        idempotent.accountTransfer(UUID.randomUUID().toString(), PREFIX + pair[0], PREFIX + pair[1], 1);
+    }
+
+    @Benchmark
+    public Object cachedDuplicate() {
+        return idempotent.accountTransfer(duplicateKey, PREFIX + 0, PREFIX + 1, 1);
+    }
+
+    private static int[] pair() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS - 1);
+        int to = from + 1 + random.nextInt(ACCOUNTS - 1 - from);
+        return new int[]{from, to};
+    }
+}
@@ -0,0 +1,79 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 비관적 락(select for update) vs 낙관적 락(버전 비교 갱신) 이체, 경합 수준별
+ * 8 스레드가 accounts 개 계좌 중 무작위 두 계좌 사이에서 이체, 계좌가 적을수록 경합이 높다.
+ *
+ * ./gradlew jmh -PjmhInclude=TransferContentionBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class TransferContentionBenchmark {
+
+    private static final String PREFIX = "benchCt";
+
+    @Param({"2", "16", "256"})
+    private int accounts;
+
+    private HikariDataSource dataSource;
+    private LockRetryTransferService pessimistic;
+    private OptimisticTransferService optimistic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(8);
+        EmbeddedH2.clear(dataSource, PREFIX);
+
+        MemberRepository memberRepository = new MemberRepositoryV4_2(dataSource);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            members.add(new Member(PREFIX + i, 1_000_000_000));
+        }
+        memberRepository.saveAll(members);
+
+        MemberServiceV4 memberService = TransactionalProxy.create(new MemberServiceV4(memberRepository), new DataSourceTransactionManager(dataSource));
+        pessimistic = new LockRetryTransferService(memberService, 100, 1);
+        optimistic = new OptimisticTransferService(memberService, 100, 1, 8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedH2.clear(dataSource, PREFIX);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void pessimistic() {
+        int[] pair = pair();
+        pessimistic.accountTransfer(PREFIX + pair[0], PREFIX + pair[1], 1);
+    }
+
+    @Benchmark
+    public void optimistic() {
+        int[] pair = pair();
+        optimistic.accountTransfer(PREFIX + pair[0], PREFIX + pair[1], 1);
+    }
+
+    private int[] pair() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        return new int[]{from, to};
+    }
+}
@@ -0,0 +1,87 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.EmbeddedH2;
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.TransferResult;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀 10 개로 inFlight 건의 이체를 동시에 진행할 때 플랫폼 스레드 vs 가상 스레드
+ * PLATFORM 은 이체 하나에 스레드 하나 (요청마다 스레드를 쓰는 서버와 같은 구조), VIRTUAL 은 이체마다 가상 스레드
+ * 한 번의 연산 = inFlight 건 제출 후 모두 완료될 때까지, 초당 이체 수 = inFlight / 연산 시간
+ *
+ * VIRTUAL 은 JDK 21 이상에서 실행해야 한다.
+ * ./gradlew jmh -PjmhInclude=TransferThreadModeBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TransferThreadModeBenchmark {
+
+    private static final int ACCOUNTS = 50;
+    private static final int POOL_SIZE = 10;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ConcurrentTransferService.Mode mode;
+
+    @Param({"100", "1000", "4000"})
+    private int inFlight;
+
+    private HikariDataSource dataSource;
+    private MemberRepository memberRepository;
+    private ConcurrentTransferService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedH2.start();
+        dataSource = EmbeddedH2.pooledDataSource(POOL_SIZE);
+        dataSource.setConnectionTimeout(TimeUnit.MINUTES.toMillis(1));
+        EmbeddedH2.clear(dataSource, "vt");
+
+        memberRepository = new MemberRepositoryV4_2(dataSource);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            members.add(new Member("vtFrom" + i, 1_000_000_000));
+            members.add(new Member("vtTo" + i, 0));
+        }
+        memberRepository.saveAll(members);
+
+        service = new ConcurrentTransferService(TransactionalProxy.create(new MemberServiceV4(memberRepository), new DataSourceTransactionManager(dataSource)),
+                mode, inFlight, inFlight);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+        EmbeddedH2.clear(dataSource, "vt");
+        dataSource.close();
+    }
+
+    /**
+     * 출금 계좌와 입금 계좌 집합이 겹치지 않으므로 항상 출금 -> 입금 순서로 잠겨 데드락이 없다.
+     */
+    @Benchmark
+    public int transfers() {
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            int account = i % ACCOUNTS;
+            futures.add(service.submit("vtFrom" + account, "vtTo" + account, 1));
+        }
+        int succeeded = 0;
+        for (CompletableFuture<TransferResult> future : futures) {
+            if (future.join().isSuccess()) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+}
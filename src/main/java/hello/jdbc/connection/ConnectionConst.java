@@ -5,4 +5,8 @@ public abstract class ConnectionConst {
     public static final String URL = "jdbc:h2:tcp://localhost/~/test";
     public static final String USERNAME = "sa";
     public static final String PASSWORD = "";
+
+    public static final String POOL_NAME = "MemberPool";
+    public static final int MAXIMUM_POOL_SIZE = 10;
+    public static final int MINIMUM_IDLE = 5;
 }
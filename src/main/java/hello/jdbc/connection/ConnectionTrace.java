@@ -0,0 +1,38 @@
+package hello.jdbc.connection;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 커넥션 획득 추적 로그
+ * 기본은 꺼져 있고 DEBUG 레벨에서만 남긴다. 꺼져 있으면 레벨 확인 한 번으로 끝나서
+ * 커넥션 프록시의 toString() 호출, 문자열 포맷, 할당이 모두 생기지 않는다.
+ *
+ * 켜기: logging.level.hello.jdbc.connection.ConnectionTrace=DEBUG
+ * 샘플링: setSampleRate(100) -> 대략 100 번에 한 번만 기록
+ */
+@Slf4j
+public abstract class ConnectionTrace {
+
+    private static volatile int sampleRate = 1;
+
+    public static void setSampleRate(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        }
+        ConnectionTrace.sampleRate = sampleRate;
+    }
+
+    public static void trace(Connection con) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        int rate = sampleRate;
+        if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+            return;
+        }
+        log.debug("get connection={}, class={}", con, con.getClass());
+    }
+}
@@ -1,16 +1,21 @@
 package hello.jdbc.connection;
 
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static hello.jdbc.connection.ConnectionConst.*;
 
 @Slf4j
 public class DBConeectionUtil {
 
+    private static final ReentrantLock poolLock = new ReentrantLock();
+    private static volatile HikariDataSource pool;
+
     /**
      * JDBC 표준 인터페이스가 지원하는 Connection
      * getConnection() 호출 -> DriverManager를 통해 Connection 가져 옴 -> Connection 인터페이스의 구현체 반환
@@ -19,10 +24,40 @@ public class DBConeectionUtil {
     public static Connection getConnection() throws SQLException {
         try {
             Connection connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            log.info("get connection={}, class={}", connection, connection.getClass());
+            ConnectionTrace.trace(connection);
             return connection;
         } catch (SQLException e) {
             throw new IllegalStateException(e);
         }
     }
+
+    /**
+     * 커넥션 풀에서 커넥션 대여 (close() 하면 풀에 반납)
+     * 풀은 처음 호출할 때 DataSourceFactory.pooledDataSource() 로 한 번만 만든다.
+     */
+    public static Connection getPooledConnection() throws SQLException {
+        Connection connection = pool().getConnection();
+        ConnectionTrace.trace(connection);
+        return connection;
+    }
+
+    /**
+     * 풀 생성(커넥션 사전 준비)은 JDBC 대기가 있으므로 synchronized/클래스 초기화 대신 ReentrantLock
+     * (가상 스레드가 캐리어 스레드를 붙잡지 않도록)
+     */
+    private static HikariDataSource pool() {
+        HikariDataSource dataSource = pool;
+        if (dataSource != null) {
+            return dataSource;
+        }
+        poolLock.lock();
+        try {
+            if (pool == null) {
+                pool = DataSourceFactory.pooledDataSource();
+            }
+            return pool;
+        } finally {
+            poolLock.unlock();
+        }
+    }
 }
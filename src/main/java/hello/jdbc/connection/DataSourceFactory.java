@@ -0,0 +1,68 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+
+/**
+ * 커넥션 풀(HikariCP) DataSource 생성
+ * DriverManager 는 호출마다 TCP 연결 + 인증을 새로 하지만, 풀은 만들어 둔 커넥션을 빌려주고 돌려받는다.
+ *
+ * - 사전 준비(prewarm): 시작할 때 minimumIdle 개의 커넥션을 미리 열어 둠. 첫 요청들이 커넥션 생성 비용을 내지 않는다.
+ * - 대여 시 검증: HikariCP 는 500ms 이상 놀던 커넥션을 빌려줄 때 isValid() 로 확인하고, 끊긴 커넥션은 버리고 새로 연다.
+ */
+@Slf4j
+public abstract class DataSourceFactory {
+
+    /**
+     * ConnectionConst 설정으로 만든 풀, 사전 준비
+     */
+    public static HikariDataSource pooledDataSource() {
+        return pooledDataSource(POOL_NAME, MAXIMUM_POOL_SIZE, MINIMUM_IDLE, true);
+    }
+
+    public static HikariDataSource pooledDataSource(String poolName, int maximumPoolSize, int minimumIdle, boolean prewarm) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(URL);
+        config.setUsername(USERNAME);
+        config.setPassword(PASSWORD);
+        config.setPoolName(poolName);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(minimumIdle);
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        if (prewarm) {
+            prewarm(dataSource, minimumIdle);
+        }
+        return dataSource;
+    }
+
+    /**
+     * connections 개를 동시에 빌렸다가 돌려줌 -> 풀에 최소 connections 개의 물리 커넥션이 열려 있게 된다.
+     */
+    public static void prewarm(HikariDataSource dataSource, int connections) {
+        long start = System.nanoTime();
+        List<Connection> borrowed = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                borrowed.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("connection pool prewarm failed pool=" + dataSource.getPoolName(), e);
+        } finally {
+            for (Connection con : borrowed) {
+                JdbcUtils.closeConnection(con);
+            }
+        }
+        log.info("connection pool prewarmed pool={}, connections={}, elapsedMs={}",
+                dataSource.getPoolName(), connections, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,169 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.metrics.PoolMonitor;
+import hello.jdbc.metrics.PoolSnapshot;
+import hello.jdbc.metrics.StatementMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀 크기 자동 조절
+ * 주기마다 PoolMonitor 로 커넥션 대기 시간(p95)을, StatementMetrics 로 DB 쪽 SQL 평균 실행 시간을 보고
+ * HikariConfigMXBean.setMaximumPoolSize 로 [minSize, maxSize] 안에서 풀 크기를 바꾼다.
+ *
+ * - 늘리기: 대기 p95 > targetAcquire 이고 기다리는 스레드가 있는 구간이 GROW_AFTER 번 연속 -> 25% 증가
+ *   단, SQL 실행 시간이 기준치의 DB_SATURATION_FACTOR 배를 넘으면 DB 가 포화된 것으로 보고 늘리지 않는다.
+ *   (커넥션을 더 줘도 DB 안에서 줄을 설 뿐, 대기는 DB 보다 풀에서 하는 편이 싸다)
+ *   기준치는 관측한 최저치에서 시작해 천천히 따라 올라가므로 작업 부하가 바뀌어도 영영 막히지는 않는다.
+ * - 줄이기: 대기 p95 < targetAcquire / 4 이고 사용률 50% 미만인 구간이 SHRINK_AFTER 번 연속 -> 1 감소
+ * 늘리기/줄이기 조건과 연속 횟수를 다르게 둬서(히스테리시스) 경계 근처에서 크기가 오르내리지 않게 한다.
+ *
+ * HikariCP 는 최대 크기를 줄여도 열린 커넥션을 바로 닫지 않고, idleTimeout 이 지난 유휴 커넥션부터 정리한다.
+ * 컨트롤러가 PoolMonitor.sample() 을 호출하므로 PoolMonitor.start() 는 함께 쓰지 않는다.
+ */
+@Slf4j
+public class PoolSizeController implements AutoCloseable {
+
+    static final int GROW_AFTER = 2;
+    static final int SHRINK_AFTER = 5;
+    static final double DB_SATURATION_FACTOR = 2.0;
+    static final int BASELINE_DRIFT = 64;
+
+    private final HikariConfigMXBean config;
+    private final PoolMonitor monitor;
+    private final StatementMetrics statementMetrics;
+    private final int minSize;
+    private final int maxSize;
+    private final long targetAcquireNanos;
+
+    private int growSignals;
+    private int shrinkSignals;
+    private long baselineStatementNanos = Long.MAX_VALUE;
+    private long lastStatementCount;
+    private double lastStatementTotalNanos;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * statementMetrics 는 없어도 됨(null) - 그 경우 커넥션 대기 시간만 본다.
+     */
+    public PoolSizeController(HikariDataSource pool, PoolMonitor monitor, StatementMetrics statementMetrics,
+                              int minSize, int maxSize, long targetAcquireMillis) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("invalid bounds min=" + minSize + ", max=" + maxSize);
+        }
+        this.config = pool.getHikariConfigMXBean();
+        this.monitor = monitor;
+        this.statementMetrics = statementMetrics;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetAcquireNanos = TimeUnit.MILLISECONDS.toNanos(targetAcquireMillis);
+        resize(Math.max(minSize, Math.min(maxSize, config.getMaximumPoolSize())));
+    }
+
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pool-size-controller-" + monitor.getPoolName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                adjust();
+            } catch (RuntimeException e) {
+                log.warn("pool size adjust failed pool={}", monitor.getPoolName(), e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 한 구간 평가 후 필요하면 풀 크기 변경, 변경 후 크기 반환
+     */
+    public synchronized int adjust() {
+        PoolSnapshot snapshot = monitor.sample();
+        int current = config.getMaximumPoolSize();
+        int next = decide(snapshot, current, intervalStatementNanos());
+        if (next != current) {
+            log.info("pool={} resize {} -> {} (acquire p95={}us, pending={}, active={}, statement baseline={}us)",
+                    snapshot.getPoolName(), current, next,
+                    TimeUnit.NANOSECONDS.toMicros(snapshot.getRecentAcquire().getP95Nanos()),
+                    snapshot.getPending(), snapshot.getActive(),
+                    baselineStatementNanos == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMicros(baselineStatementNanos));
+            resize(next);
+        }
+        return next;
+    }
+
+    /**
+     * statementNanos: 구간 SQL 평균 실행 시간, 측정값이 없으면 0
+     */
+    int decide(PoolSnapshot snapshot, int current, long statementNanos) {
+        if (statementNanos > 0) {
+            baselineStatementNanos = statementNanos < baselineStatementNanos
+                    ? statementNanos
+                    : baselineStatementNanos + (statementNanos - baselineStatementNanos) / BASELINE_DRIFT;
+        }
+        boolean dbSaturated = statementNanos > 0
+                && statementNanos > baselineStatementNanos * DB_SATURATION_FACTOR;
+        long acquireP95 = snapshot.getRecentAcquire().getP95Nanos();
+
+        boolean wantGrow = !dbSaturated && acquireP95 > targetAcquireNanos && snapshot.getPending() > 0;
+        boolean wantShrink = acquireP95 < targetAcquireNanos / 4 && snapshot.utilization() < 0.5;
+
+        growSignals = wantGrow ? growSignals + 1 : 0;
+        shrinkSignals = wantShrink ? shrinkSignals + 1 : 0;
+
+        if (growSignals >= GROW_AFTER && current < maxSize) {
+            growSignals = 0;
+            return Math.min(maxSize, current + Math.max(1, current / 4));
+        }
+        if (shrinkSignals >= SHRINK_AFTER && current > minSize) {
+            shrinkSignals = 0;
+            return current - 1;
+        }
+        return current;
+    }
+
+    /**
+     * StatementMetrics 는 누적값이므로 직전 구간과의 차이로 평균을 구함
+     */
+    private long intervalStatementNanos() {
+        if (statementMetrics == null) {
+            return 0;
+        }
+        long count = 0;
+        double totalNanos = 0;
+        for (StatementMetrics.StatementSnapshot statement : statementMetrics.snapshot().getStatements().values()) {
+            count += statement.getLatency().getCount();
+            totalNanos += (double) statement.getLatency().getMeanNanos() * statement.getLatency().getCount();
+        }
+        long intervalCount = count - lastStatementCount;
+        double intervalNanos = totalNanos - lastStatementTotalNanos;
+        lastStatementCount = count;
+        lastStatementTotalNanos = totalNanos;
+        return intervalCount <= 0 ? 0 : (long) Math.max(0, intervalNanos / intervalCount);
+    }
+
+    private void resize(int size) {
+        config.setMaximumPoolSize(size);
+        if (config.getMinimumIdle() > size) {
+            config.setMinimumIdle(size);
+        }
+    }
+}
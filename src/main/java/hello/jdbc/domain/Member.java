@@ -8,6 +8,12 @@ public class Member {
     private String memberId;
     private int money;
 
+    /**
+     * 낙관적 락 버전: 행이 바뀔 때마다 1 증가
+     * 읽은 버전과 같을 때만 갱신(updateIfVersion)해서 조회 이후 다른 트랜잭션의 변경을 덮어쓰지 않는다.
+     */
+    private long version;
+
     public Member() {
     }
 
@@ -15,4 +21,10 @@ public class Member {
         this.memberId = memberId;
         this.money = money;
     }
+
+    public Member(String memberId, int money, long version) {
+        this.memberId = memberId;
+        this.money = money;
+        this.version = version;
+    }
 }
@@ -0,0 +1,14 @@
+package hello.jdbc.domain;
+
+import lombok.Value;
+
+/**
+ * 이체 요청: fromId -> toId 로 money 만큼
+ */
+@Value
+public class Transfer {
+
+    String fromId;
+    String toId;
+    int money;
+}
@@ -0,0 +1,23 @@
+package hello.jdbc.domain;
+
+import lombok.Value;
+
+/**
+ * 이체 영수증: idempotency key 로 처음 실행한 이체
+ * 같은 key 로 다시 요청하면 이체하지 않고 이 영수증을 돌려준다.
+ */
+@Value
+public class TransferReceipt {
+
+    String idempotencyKey;
+    String fromId;
+    String toId;
+    int money;
+
+    /**
+     * 같은 key 로 들어온 요청이 처음 요청과 같은 이체인지
+     */
+    public boolean isSameRequest(String fromId, String toId, int money) {
+        return this.fromId.equals(fromId) && this.toId.equals(toId) && this.money == money;
+    }
+}
@@ -0,0 +1,22 @@
+package hello.jdbc.domain;
+
+import lombok.Value;
+
+/**
+ * 이체 결과: 성공 여부와 실패 사유
+ */
+@Value
+public class TransferResult {
+
+    Transfer transfer;
+    boolean success;
+    String message;
+
+    public static TransferResult success(Transfer transfer) {
+        return new TransferResult(transfer, true, null);
+    }
+
+    public static TransferResult failure(Transfer transfer, String message) {
+        return new TransferResult(transfer, false, message);
+    }
+}
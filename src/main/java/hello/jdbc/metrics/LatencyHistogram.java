@@ -0,0 +1,95 @@
+package hello.jdbc.metrics;
+
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 지연 시간 히스토그램 (나노초)
+ * 구간 i 는 [2^i, 2^(i+1)) ns, 기록은 락 없이 LongAdder 로 한다.
+ * 백분위는 해당 구간의 상한값이므로 최대 2배까지 크게 나올 수 있다.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(1, nanos);
+        buckets[63 - Long.numberOfLeadingZeros(value)].increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public Snapshot snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * 요약을 만들고 0 부터 다시 기록 (구간별 지표용)
+     * 요약하는 도중에 들어온 기록은 이번 구간과 다음 구간 중 한쪽에 들어간다.
+     */
+    public Snapshot snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    private Snapshot snapshot(boolean reset) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = reset ? buckets[i].sumThenReset() : buckets[i].sum();
+            total += counts[i];
+        }
+        long sum = reset ? totalNanos.sumThenReset() : totalNanos.sum();
+        long max = reset ? maxNanos.getThenReset() : maxNanos.get();
+        return new Snapshot(total,
+                total == 0 ? 0 : sum / total,
+                percentile(counts, total, 0.50),
+                percentile(counts, total, 0.95),
+                percentile(counts, total, 0.99),
+                max);
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 나노초 단위 요약
+     */
+    @Value
+    public static class Snapshot {
+        long count;
+        long meanNanos;
+        long p50Nanos;
+        long p95Nanos;
+        long p99Nanos;
+        long maxNanos;
+
+        public double p95Millis() {
+            return p95Nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package hello.jdbc.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 계측 DataSource
+ * DataSource -> Connection -> PreparedStatement 를 감싸서
+ * 커넥션 획득 시간, SQL 모양별 실행 시간/변경 행 수를 StatementMetrics 에 기록한다.
+ *
+ * 리포지토리 코드는 그대로 두고 DataSource 만 바꿔 끼우면 된다.
+ * new MemberRepositoryV4_2(new MetricsDataSource(dataSource, metrics))
+ */
+public class MetricsDataSource extends DelegatingDataSource {
+
+    private final StatementMetrics metrics;
+
+    public MetricsDataSource(DataSource targetDataSource, StatementMetrics metrics) {
+        super(targetDataSource);
+        this.metrics = metrics;
+    }
+
+    public StatementMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection con = super.getConnection();
+        metrics.recordAcquire(System.nanoTime() - start);
+        return wrap(con);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        Connection con = super.getConnection(username, password);
+        metrics.recordAcquire(System.nanoTime() - start);
+        return wrap(con);
+    }
+
+    private Connection wrap(Connection con) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(con));
+    }
+
+    /**
+     * prepareStatement(sql, ...) 결과를 계측 PreparedStatement 로 바꿔서 반환
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+            }
+
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new StatementHandler((PreparedStatement) result, (String) args[0]));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * execute* 호출 시간을 SQL 모양별로 기록
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                return invokeTarget(target, method, args);
+            }
+
+            long start = System.nanoTime();
+            boolean failed = true;
+            Object result = null;
+            try {
+                result = invokeTarget(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                metrics.recordExecution(sql, System.nanoTime() - start, rowsAffected(result), failed);
+            }
+        }
+    }
+
+    private static long rowsAffected(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long sum = 0;
+            for (int count : (int[]) result) {
+                sum += Math.max(count, 0);
+            }
+            return sum;
+        }
+        if (result instanceof long[]) {
+            long sum = 0;
+            for (long count : (long[]) result) {
+                sum += Math.max(count, 0);
+            }
+            return sum;
+        }
+        return 0;
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
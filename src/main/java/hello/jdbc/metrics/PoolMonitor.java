@@ -0,0 +1,242 @@
+package hello.jdbc.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HikariCP 커넥션 풀 모니터
+ * - 풀 상태: HikariPoolMXBean 의 active / idle / total / pending(커넥션을 기다리는 스레드)
+ * - 커넥션 획득 시간: dataSource() 로 얻은 DataSource 를 통해 빌려간 커넥션만 측정
+ * - 누수 감지: leakThreshold 보다 오래 반납하지 않은 커넥션을 빌려간 위치(스택)와 함께 WARN 으로 남김
+ *   (예: close 하지 않는 MemberServiceV2.release)
+ *
+ * sample() 결과는 PoolRegistry 에 올라가고, start() 하면 주기적으로 샘플링해서 로그를 남긴다.
+ *
+ * PoolMonitor monitor = new PoolMonitor(hikariDataSource, 2000);
+ * MemberRepository repository = new MemberRepositoryV4_2(monitor.dataSource());
+ * monitor.start(10_000);
+ */
+@Slf4j
+public class PoolMonitor implements AutoCloseable {
+
+    private final HikariDataSource pool;
+    private final long leakThresholdNanos;
+    private final DataSource dataSource;
+
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram recentAcquire = new LatencyHistogram();
+    private final Set<Borrow> borrowed = ConcurrentHashMap.newKeySet();
+    private final LongAdder leaksDetected = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * leakThresholdMillis: 이 시간보다 오래 빌려가 있으면 누수로 판단, 0 이면 누수 감지 안 함
+     * 누수 감지 중에는 커넥션을 빌릴 때마다 스택을 기록하므로 획득 비용이 조금 늘어난다.
+     */
+    public PoolMonitor(HikariDataSource pool, long leakThresholdMillis) {
+        this.pool = pool;
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        this.dataSource = new MonitoredDataSource(pool);
+    }
+
+    /**
+     * 획득 시간과 누수를 측정하는 DataSource, 리포지토리/트랜잭션 매니저에는 이것을 넘긴다.
+     */
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public String getPoolName() {
+        return pool.getPoolName();
+    }
+
+    /**
+     * periodMillis 마다 sample() 후 로그 한 줄
+     */
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pool-monitor-" + pool.getPoolName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                logSnapshot(sample());
+            } catch (RuntimeException e) {
+                log.warn("pool monitor sample failed pool={}", pool.getPoolName(), e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        PoolRegistry.remove(pool.getPoolName());
+    }
+
+    /**
+     * 현재 풀 상태를 읽고 누수를 검사한 뒤 PoolRegistry 에 올림
+     */
+    public PoolSnapshot sample() {
+        int leaked = detectLeaks();
+        HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+        PoolSnapshot snapshot = new PoolSnapshot(pool.getPoolName(), System.currentTimeMillis(),
+                mxBean == null ? 0 : mxBean.getActiveConnections(),
+                mxBean == null ? 0 : mxBean.getIdleConnections(),
+                mxBean == null ? 0 : mxBean.getTotalConnections(),
+                mxBean == null ? 0 : mxBean.getThreadsAwaitingConnection(),
+                pool.getMaximumPoolSize(),
+                acquire.snapshot(),
+                recentAcquire.snapshotAndReset(),
+                leaked,
+                leaksDetected.sum());
+        PoolRegistry.publish(snapshot);
+        return snapshot;
+    }
+
+    private int detectLeaks() {
+        if (leakThresholdNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int leaked = 0;
+        for (Borrow borrow : borrowed) {
+            long heldNanos = now - borrow.startNanos;
+            if (heldNanos < leakThresholdNanos) {
+                continue;
+            }
+            leaked++;
+            if (!borrow.reported) {
+                borrow.reported = true;
+                leaksDetected.increment();
+                log.warn("connection leak suspected pool={}, thread={}, heldMs={}",
+                        pool.getPoolName(), borrow.threadName, TimeUnit.NANOSECONDS.toMillis(heldNanos),
+                        borrow.stack);
+            }
+        }
+        return leaked;
+    }
+
+    private static void logSnapshot(PoolSnapshot s) {
+        LatencyHistogram.Snapshot recent = s.getRecentAcquire();
+        log.info("pool={} active={} idle={} pending={} total={}/{} acquire(n={} p50={}us p95={}us p99={}us max={}us) leaked={} leaksDetected={}",
+                s.getPoolName(), s.getActive(), s.getIdle(), s.getPending(), s.getTotal(), s.getMaximumPoolSize(),
+                recent.getCount(), micros(recent.getP50Nanos()), micros(recent.getP95Nanos()),
+                micros(recent.getP99Nanos()), micros(recent.getMaxNanos()), s.getLeaked(), s.getLeaksDetected());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private class MonitoredDataSource extends DelegatingDataSource {
+
+        MonitoredDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            long start = System.nanoTime();
+            Connection con = super.getConnection();
+            return track(con, start);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            long start = System.nanoTime();
+            Connection con = super.getConnection(username, password);
+            return track(con, start);
+        }
+
+        private Connection track(Connection con, long start) {
+            long now = System.nanoTime();
+            acquire.record(now - start);
+            recentAcquire.record(now - start);
+
+            Borrow borrow = new Borrow(now, Thread.currentThread().getName(),
+                    leakThresholdNanos == 0 ? null : new Exception("connection acquired here"));
+            borrowed.add(borrow);
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{Connection.class}, new BorrowHandler(con, borrow));
+        }
+    }
+
+    /**
+     * close() 하면 빌린 목록에서 제거
+     */
+    private class BorrowHandler implements InvocationHandler {
+        private final Connection target;
+        private final Borrow borrow;
+
+        BorrowHandler(Connection target, Borrow borrow) {
+            this.target = target;
+            this.borrow = borrow;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    borrowed.remove(borrow);
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    private static class Borrow {
+        final long startNanos;
+        final String threadName;
+        final Exception stack;
+        volatile boolean reported;
+
+        Borrow(long startNanos, String threadName, Exception stack) {
+            this.startNanos = startNanos;
+            this.threadName = threadName;
+            this.stack = stack;
+        }
+    }
+}
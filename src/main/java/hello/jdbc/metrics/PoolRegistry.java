@@ -0,0 +1,34 @@
+package hello.jdbc.metrics;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 프로세스 안 커넥션 풀 상태 저장소
+ * PoolMonitor 가 샘플링할 때마다 풀 이름별 최신 PoolSnapshot 을 올린다.
+ */
+public abstract class PoolRegistry {
+
+    private static final Map<String, PoolSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    public static void publish(PoolSnapshot snapshot) {
+        snapshots.put(snapshot.getPoolName(), snapshot);
+    }
+
+    public static Optional<PoolSnapshot> latest(String poolName) {
+        return Optional.ofNullable(snapshots.get(poolName));
+    }
+
+    /**
+     * 풀 이름순
+     */
+    public static Map<String, PoolSnapshot> all() {
+        return new TreeMap<>(snapshots);
+    }
+
+    public static void remove(String poolName) {
+        snapshots.remove(poolName);
+    }
+}
@@ -0,0 +1,35 @@
+package hello.jdbc.metrics;
+
+import lombok.Value;
+
+/**
+ * 커넥션 풀 상태 한 시점
+ * acquire: 모니터 시작부터 누적된 커넥션 획득 시간, recentAcquire: 직전 샘플 이후 구간
+ */
+@Value
+public class PoolSnapshot {
+    String poolName;
+    long timestampMillis;
+    int active;
+    int idle;
+    int total;
+    int pending;
+    int maximumPoolSize;
+    LatencyHistogram.Snapshot acquire;
+    LatencyHistogram.Snapshot recentAcquire;
+    /**
+     * 지금 leakThreshold 보다 오래 빌려간 커넥션 수
+     */
+    int leaked;
+    /**
+     * 누적 누수 감지 건수
+     */
+    long leaksDetected;
+
+    /**
+     * 최대 크기 대비 사용 중인 커넥션 비율
+     */
+    public double utilization() {
+        return maximumPoolSize == 0 ? 0 : (double) active / maximumPoolSize;
+    }
+}
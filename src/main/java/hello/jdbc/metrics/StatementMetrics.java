@@ -0,0 +1,94 @@
+package hello.jdbc.metrics;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * SQL 모양별 실행 지표 저장소
+ * SQL 모양: 공백을 정리하고 IN 목록 "in (?, ?, ...)" 을 "in (?...)" 로 줄인 SQL 문자열
+ * (save, findById, update, delete 는 SQL 이 서로 다르므로 각각 하나의 모양이 된다)
+ *
+ * 외부 메트릭 서비스 없이 snapshot() 으로 언제든 꺼내볼 수 있다.
+ */
+@Slf4j
+public class StatementMetrics {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private final Map<String, ShapeMetrics> shapes = new ConcurrentHashMap<>();
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final long slowQueryThresholdNanos;
+
+    /**
+     * slowQueryThresholdMillis 이상 걸린 SQL 은 WARN 으로 남긴다.
+     */
+    public StatementMetrics(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+    }
+
+    public void recordAcquire(long nanos) {
+        acquire.record(nanos);
+    }
+
+    public void recordExecution(String sql, long nanos, long rowsAffected, boolean failed) {
+        ShapeMetrics metrics = shapes.computeIfAbsent(shapeOf(sql), shape -> new ShapeMetrics());
+        metrics.latency.record(nanos);
+        if (rowsAffected > 0) {
+            metrics.rowsAffected.add(rowsAffected);
+        }
+        if (failed) {
+            metrics.errors.increment();
+        }
+        if (nanos >= slowQueryThresholdNanos) {
+            log.warn("slow query {}ms rows={} failed={} sql={}",
+                    TimeUnit.NANOSECONDS.toMillis(nanos), rowsAffected, failed, sql);
+        }
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<String, StatementSnapshot> statements = new TreeMap<>();
+        shapes.forEach((shape, metrics) -> statements.put(shape, new StatementSnapshot(
+                metrics.latency.snapshot(), metrics.rowsAffected.sum(), metrics.errors.sum())));
+        return new MetricsSnapshot(acquire.snapshot(), statements);
+    }
+
+    /**
+     * 같은 SQL 문자열은 한 번만 정규화
+     */
+    String shapeOf(String sql) {
+        String shape = normalized.get(sql);
+        if (shape == null) {
+            shape = IN_LIST.matcher(WHITESPACE.matcher(sql.trim()).replaceAll(" ")).replaceAll("in (?...)");
+            normalized.put(sql, shape);
+        }
+        return shape;
+    }
+
+    private static class ShapeMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder rowsAffected = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    @Value
+    public static class StatementSnapshot {
+        LatencyHistogram.Snapshot latency;
+        long rowsAffected;
+        long errors;
+    }
+
+    @Value
+    public static class MetricsSnapshot {
+        LatencyHistogram.Snapshot connectionAcquire;
+        Map<String, StatementSnapshot> statements;
+    }
+}
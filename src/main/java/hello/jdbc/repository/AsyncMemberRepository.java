@@ -0,0 +1,121 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 비동기 MemberRepository
+ * MemberRepository(V4_2, V5 ...) 호출을 전용 JDBC 스레드 풀에서 실행하고 CompletableFuture 로 돌려준다.
+ * 호출 스레드(예: 이벤트 루프)는 JDBC 대기로 막히지 않는다.
+ *
+ * - 스레드 수: 커넥션 풀 크기 이하로 둔다. 더 많으면 스레드가 커넥션을 기다릴 뿐
+ * - 역압(backpressure): 대기 큐가 queueCapacity 를 넘으면 RejectedExecutionException 으로 실패한 future 반환
+ * - 작업별 타임아웃: 시간 안에 끝나지 않으면 TimeoutException 으로 완료.
+ *   큐에서 기다리다 타임아웃된 작업은 실행하지 않지만, 이미 실행 중인 SQL 은 끝까지 실행된다.
+ *
+ * future 의 후속 작업(thenApply ...)은 JDBC 스레드에서 실행되므로 무거운 작업은 thenApplyAsync 로 넘길 것
+ */
+@Slf4j
+public class AsyncMemberRepository implements AutoCloseable {
+
+    private final MemberRepository target;
+    private final ThreadPoolExecutor executor;
+    private final long defaultTimeoutMillis;
+
+    public AsyncMemberRepository(MemberRepository target, int threads, int queueCapacity, long defaultTimeoutMillis) {
+        this.target = target;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "member-jdbc-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<Member> saveAsync(Member member) {
+        return submit(repository -> repository.save(member), defaultTimeoutMillis);
+    }
+
+    public CompletableFuture<Member> findByIdAsync(String memberId) {
+        return findByIdAsync(memberId, defaultTimeoutMillis);
+    }
+
+    public CompletableFuture<Member> findByIdAsync(String memberId, long timeoutMillis) {
+        return submit(repository -> repository.findById(memberId), timeoutMillis);
+    }
+
+    public CompletableFuture<Map<String, Member>> findAllByIdsAsync(Collection<String> memberIds) {
+        return submit(repository -> repository.findAllByIds(memberIds), defaultTimeoutMillis);
+    }
+
+    public CompletableFuture<Void> updateAsync(String memberId, int money) {
+        return submit(repository -> {
+            repository.update(memberId, money);
+            return null;
+        }, defaultTimeoutMillis);
+    }
+
+    public CompletableFuture<Void> deleteAsync(String memberId) {
+        return submit(repository -> {
+            repository.delete(memberId);
+            return null;
+        }, defaultTimeoutMillis);
+    }
+
+    /**
+     * 임의의 리포지토리 작업을 비동기로 실행
+     */
+    public <T> CompletableFuture<T> submit(Function<MemberRepository, T> operation, long timeoutMillis) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // 큐에서 기다리는 동안 타임아웃
+                    return;
+                }
+                try {
+                    future.complete(operation.apply(target));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 대기 중인 작업 수
+     */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 새 작업을 받지 않고 남은 작업까지 처리한 뒤 종료
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
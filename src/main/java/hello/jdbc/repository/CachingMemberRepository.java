@@ -0,0 +1,332 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 조회 캐시 데코레이터 (read-through)
+ * MemberRepositoryV4_1 / V4_2 / V5 등 어떤 MemberRepository 든 감싸서 findById 결과를 캐시한다.
+ *
+ * - 크기 제한: maximumSize 를 넘으면 가장 오래 사용하지 않은 회원부터 제거 (LRU)
+ * - 변경(update, delete, withdraw, deposit ...) 시 즉시 무효화, 트랜잭션이 끝나면 한 번 더 무효화
+ * - 스프링 트랜잭션 안에서 읽은 값은 커밋(afterCommit) 후에만 캐시에 올린다. 롤백된 값이 캐시에 남지 않음
+ * - 읽은 뒤 그 회원이 무효화됐다면 읽은 값은 캐시에 올리지 않는다. (느린 조회가 최신 무효화를 덮어쓰지 않도록)
+ *
+ * Member 는 변경 가능한 객체이므로 캐시에는 복사본을 넣고, 꺼낼 때도 복사본을 준다.
+ * 잠금이 필요한 findByIdForUpdate 는 캐시를 거치지 않는다.
+ */
+@Slf4j
+public class CachingMemberRepository implements MemberRepository {
+
+    private final MemberRepository target;
+    private final int maximumSize;
+
+    /**
+     * accessOrder = true: 조회할 때마다 맨 뒤로 이동 -> 맨 앞이 가장 오래 사용하지 않은 항목
+     * 값은 Member 또는 무효화 표시(Invalidated)
+     */
+    private final LinkedHashMap<String, Object> cache;
+    private long generation;
+    private long evictedInvalidationGeneration;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CachingMemberRepository(MemberRepository target, int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.target = target;
+        this.maximumSize = maximumSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                if (size() <= CachingMemberRepository.this.maximumSize) {
+                    return false;
+                }
+                if (eldest.getValue() instanceof Invalidated) {
+                    evictedInvalidationGeneration = Math.max(evictedInvalidationGeneration,
+                            ((Invalidated) eldest.getValue()).generation);
+                } else {
+                    evictions.increment();
+                }
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        Member cached = lookup(memberId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long readGeneration = currentGeneration();
+        Member member = target.findById(memberId);
+        publish(member, readGeneration);
+        return member;
+    }
+
+    @Override
+    public Map<String, Member> findAllByIds(Collection<String> memberIds) {
+        Map<String, Member> result = new HashMap<>(InListQuery.mapCapacity(memberIds.size()));
+        List<String> missing = new ArrayList<>();
+        for (String memberId : memberIds) {
+            Member cached = lookup(memberId);
+            if (cached != null) {
+                result.put(memberId, cached);
+            } else {
+                missing.add(memberId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long readGeneration = currentGeneration();
+        Map<String, Member> found = target.findAllByIds(missing);
+        for (Member member : found.values()) {
+            publish(member, readGeneration);
+        }
+        result.putAll(found);
+        return result;
+    }
+
+    /**
+     * 전체 조회는 캐시를 거치지 않음
+     */
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+        return target.streamAll(fetchSize);
+    }
+
+    @Override
+    public void forEachMemberInPlace(int fetchSize, Consumer<Member> action) {
+        target.forEachMemberInPlace(fetchSize, action);
+    }
+
+    @Override
+    public Member findByIdForUpdate(String memberId) {
+        return target.findByIdForUpdate(memberId);
+    }
+
+    @Override
+    public Member save(Member member) {
+        Member saved = target.save(member);
+        invalidate(member.getMemberId());
+        return saved;
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        target.update(memberId, money);
+        invalidate(memberId);
+    }
+
+    @Override
+    public boolean updateIfVersion(String memberId, int money, long expectedVersion) {
+        boolean updated = target.updateIfVersion(memberId, money, expectedVersion);
+        invalidate(memberId);
+        return updated;
+    }
+
+    @Override
+    public void delete(String memberId) {
+        target.delete(memberId);
+        invalidate(memberId);
+    }
+
+    @Override
+    public boolean withdraw(String memberId, int money) {
+        boolean result = target.withdraw(memberId, money);
+        invalidate(memberId);
+        return result;
+    }
+
+    @Override
+    public boolean deposit(String memberId, int money) {
+        boolean result = target.deposit(memberId, money);
+        invalidate(memberId);
+        return result;
+    }
+
+    @Override
+    public int[] withdrawAll(List<Transfer> transfers) {
+        int[] rowCounts = target.withdrawAll(transfers);
+        for (Transfer transfer : transfers) {
+            invalidate(transfer.getFromId());
+        }
+        return rowCounts;
+    }
+
+    @Override
+    public int[] depositAll(List<Transfer> transfers) {
+        int[] rowCounts = target.depositAll(transfers);
+        for (Transfer transfer : transfers) {
+            invalidate(transfer.getToId());
+        }
+        return rowCounts;
+    }
+
+    @Override
+    public void saveAll(Collection<Member> members) {
+        target.saveAll(members);
+        for (Member member : members) {
+            invalidate(member.getMemberId());
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Member> members) {
+        target.updateAll(members);
+        for (Member member : members) {
+            invalidate(member.getMemberId());
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> memberIds) {
+        target.deleteAll(memberIds);
+        for (String memberId : memberIds) {
+            invalidate(memberId);
+        }
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        UpsertResult result = target.upsert(member);
+        invalidate(member.getMemberId());
+        return result;
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Member> members) {
+        UpsertResult result = target.upsertAll(members);
+        for (Member member : members) {
+            invalidate(member.getMemberId());
+        }
+        return result;
+    }
+
+    /**
+     * 캐시 통계
+     */
+    public CacheStats stats() {
+        int size;
+        synchronized (cache) {
+            size = (int) cache.values().stream().filter(value -> value instanceof Member).count();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size);
+    }
+
+    private Member lookup(String memberId) {
+        Object value;
+        synchronized (cache) {
+            value = cache.get(memberId);
+        }
+        if (value instanceof Member) {
+            hits.increment();
+            return copy((Member) value);
+        }
+        misses.increment();
+        return null;
+    }
+
+    private long currentGeneration() {
+        synchronized (cache) {
+            return generation;
+        }
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋 후에, 아니면 바로 캐시에 올림
+     */
+    private void publish(Member member, long readGeneration) {
+        Member copy = copy(member);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(copy, readGeneration);
+                }
+            });
+        } else {
+            put(copy, readGeneration);
+        }
+    }
+
+    private void put(Member member, long readGeneration) {
+        synchronized (cache) {
+            Object current = cache.get(member.getMemberId());
+            if (current instanceof Invalidated && ((Invalidated) current).generation > readGeneration) {
+                return;
+            }
+            if (current == null && evictedInvalidationGeneration > readGeneration) {
+                // 읽은 뒤 무효화됐는지 알 수 없음 (무효화 표시가 이미 밀려남)
+                return;
+            }
+            cache.put(member.getMemberId(), member);
+        }
+    }
+
+    /**
+     * 지금 무효화하고, 트랜잭션이 끝날 때(커밋/롤백) 한 번 더 무효화
+     * 트랜잭션 중에 다른 스레드가 커밋 전 값을 읽어 올려도 트랜잭션 종료 시 지워진다.
+     */
+    private void invalidate(String memberId) {
+        invalidateNow(memberId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateNow(memberId);
+                }
+            });
+        }
+    }
+
+    private void invalidateNow(String memberId) {
+        invalidations.increment();
+        synchronized (cache) {
+            cache.put(memberId, new Invalidated(++generation));
+        }
+    }
+
+    private static Member copy(Member member) {
+        return new Member(member.getMemberId(), member.getMoney(), member.getVersion());
+    }
+
+    private static class Invalidated {
+        final long generation;
+
+        Invalidated(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    @Value
+    public static class CacheStats {
+        long hits;
+        long misses;
+        long evictions;
+        long invalidations;
+        int size;
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
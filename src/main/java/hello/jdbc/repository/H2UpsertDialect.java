@@ -0,0 +1,36 @@
+package hello.jdbc.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * H2 upsert: merge into ... using (values ...)
+ * old table(...) 은 merge 가 갱신하기 전 행을 돌려주므로 그 개수가 갱신된 행 수다. (추가된 행은 이전 행이 없음)
+ * 한 번의 왕복으로 upsert 와 추가/갱신 구분을 같이 한다.
+ * member_id 가 null 인 채움 행은 어떤 행과도 같지 않고(null = null 은 참이 아님) 추가 조건에서도 빠진다.
+ */
+public class H2UpsertDialect implements UpsertDialect {
+
+    public static final H2UpsertDialect INSTANCE = new H2UpsertDialect();
+
+    @Override
+    public String upsertSql(int rows) {
+        StringBuilder sb = new StringBuilder("select count(*) from old table (merge into member m using (values ");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        return sb.append(") s(member_id, money) on m.member_id = s.member_id")
+                .append(" when matched then update set money = s.money, version = m.version + 1")
+                .append(" when not matched and s.member_id is not null then insert (member_id, money) values (s.member_id, s.money))")
+                .toString();
+    }
+
+    @Override
+    public int executeAndCountUpdated(PreparedStatement pstmt, int rows) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
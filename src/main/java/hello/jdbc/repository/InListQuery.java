@@ -0,0 +1,91 @@
+package hello.jdbc.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * IN 절 다건 조회용 SQL
+ * 파라미터 개수가 매번 다르면 SQL 문자열도 매번 달라져서 DB 가 새로 파싱한다.
+ * 그래서 1, 8, 32, 128 네 가지 모양만 만들어 두고, 남는 자리는 청크의 마지막 키로 채운다.
+ */
+final class InListQuery {
+
+    private static final int[] SHAPES = {1, 8, 32, 128};
+    static final int MAX_SHAPE = SHAPES[SHAPES.length - 1];
+
+    private final String[] sqls = new String[SHAPES.length];
+
+    /**
+     * sqlPrefix: "select ... where member_id in " 까지
+     */
+    InListQuery(String sqlPrefix) {
+        this(sqlPrefix, "");
+    }
+
+    /**
+     * sqlSuffix: IN 절 뒤에 붙일 부분 (group by ...)
+     */
+    InListQuery(String sqlPrefix, String sqlSuffix) {
+        for (int i = 0; i < SHAPES.length; i++) {
+            StringBuilder sb = new StringBuilder(sqlPrefix).append('(');
+            for (int p = 0; p < SHAPES[i]; p++) {
+                sb.append(p == 0 ? "?" : ", ?");
+            }
+            sqls[i] = sb.append(')').append(sqlSuffix).toString();
+        }
+    }
+
+    /**
+     * 남은 키 개수를 한 번에 담을 수 있는 가장 작은 모양, 128 개를 넘으면 128
+     */
+    static int shapeIndex(int remaining) {
+        for (int i = 0; i < SHAPES.length; i++) {
+            if (remaining <= SHAPES[i]) {
+                return i;
+            }
+        }
+        return SHAPES.length - 1;
+    }
+
+    static int shapeSize(int shapeIndex) {
+        return SHAPES[shapeIndex];
+    }
+
+    static int shapeCount() {
+        return SHAPES.length;
+    }
+
+    String sql(int shapeIndex) {
+        return sqls[shapeIndex];
+    }
+
+    /**
+     * ids[from, from + shape) 바인딩, 키가 모자라면 마지막 키를 반복
+     */
+    static void bind(PreparedStatement pstmt, List<String> ids, int from, int shape) throws SQLException {
+        int to = Math.min(from + shape, ids.size());
+        String last = ids.get(to - 1);
+        for (int p = 0; p < shape; p++) {
+            int i = from + p;
+            pstmt.setString(p + 1, i < to ? ids.get(i) : last);
+        }
+    }
+
+    /**
+     * 중복 키 제거 (순서 유지)
+     */
+    static List<String> distinct(Collection<String> memberIds) {
+        return new ArrayList<>(new LinkedHashSet<>(memberIds));
+    }
+
+    /**
+     * 결과 Map 이 재해시되지 않도록 미리 용량 계산
+     */
+    static int mapCapacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+}
@@ -0,0 +1,191 @@
+package hello.jdbc.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 원장 반영기
+ * 반영되지 않은 원장 행을 batchSize 개씩 member.money(스냅샷) 에 더하고 반영 표시(compacted = true)를 한다.
+ * 한 트랜잭션 안에서 둘 다 바꾸므로 LedgerMemberRepository 잔액 조회에는 반영 전후가 같은 금액으로 보인다.
+ *
+ * 원장 행마다 "compacted = false 일 때만 true 로" 표시하고 실제로 표시한(변경 행 수 1) 행만 더하므로,
+ * 반영기가 동시에 여러 개 돌아도 같은 원장 행을 두 번 더하지 않는다.
+ * 관련 회원 행을 memberId 순서로 먼저 잠근 뒤 원장 행을 entry_id 순서로 표시한다.
+ * 출금/이체/잔액 지정/삭제도 회원 행을 먼저 잠그므로 반영기와 잠금 순서가 같다. (데드락 없음)
+ *
+ * LedgerCompactor compactor = new LedgerCompactor(dataSource, 1000);
+ * compactor.start(1000);
+ */
+@Slf4j
+public class LedgerCompactor implements AutoCloseable {
+
+    private static final RowMapper<Entry> ENTRY_MAPPER =
+            (rs, rowNum) -> new Entry(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4));
+
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+
+    public LedgerCompactor(DataSource dataSource, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 한 번 반영, 반영한 원장 행 수 반환
+     */
+    public int compact() {
+        Integer compacted = txTemplate.execute(status -> fold(template.query(
+                "select entry_id, from_id, to_id, amount from ledger where compacted = false order by entry_id fetch first ? rows only",
+                ENTRY_MAPPER, batchSize), List.of()));
+        return compacted == null ? 0 : compacted;
+    }
+
+    /**
+     * 회원들이 출금/입금 쪽인 반영되지 않은 원장만 반영 (상대 회원 쪽도 함께 반영), 반영한 원장 행 수 반환
+     * memberIds 회원 행도 함께 잠그고, 이미 트랜잭션이 있으면 참여한다. (LedgerMemberRepository 삭제가 같은 트랜잭션에서 삭제)
+     */
+    public int compactMembers(Collection<String> memberIds) {
+        Integer compacted = txTemplate.execute(status -> {
+            SortedMap<Long, Entry> candidates = new TreeMap<>();
+            for (String memberId : new TreeSet<>(memberIds)) {
+                template.query("select entry_id, from_id, to_id, amount from ledger"
+                                + " where compacted = false and (from_id = ? or to_id = ?)",
+                        ENTRY_MAPPER, memberId, memberId).forEach(entry -> candidates.put(entry.entryId, entry));
+            }
+            return fold(new ArrayList<>(candidates.values()), memberIds);
+        });
+        return compacted == null ? 0 : compacted;
+    }
+
+    /**
+     * 후보 원장 행의 회원 행과 lockIds 회원 행을 memberId 순서로 잠그고,
+     * 후보 원장 행에 반영 표시를 해서 실제로 표시한 행만 회원 스냅샷에 더함 (트랜잭션 안에서 호출)
+     * 후보를 읽은 뒤 추가된 원장 행은 다음 반영 때 처리된다.
+     */
+    private int fold(List<Entry> candidates, Collection<String> lockIds) {
+        SortedSet<String> memberIds = new TreeSet<>(lockIds);
+        for (Entry entry : candidates) {
+            if (entry.fromId != null) {
+                memberIds.add(entry.fromId);
+            }
+            if (entry.toId != null) {
+                memberIds.add(entry.toId);
+            }
+        }
+        for (String memberId : memberIds) {
+            template.queryForList("select member_id from member where member_id = ? for update", String.class, memberId);
+        }
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        // 반영 표시: 다른 반영기가 먼저 표시한 행은 0 건 -> 이 트랜잭션이 표시한 행만 더한다
+        int[][] claimed = template.batchUpdate("update ledger set compacted = true where entry_id = ? and compacted = false",
+                candidates, candidates.size(), (pstmt, entry) -> pstmt.setLong(1, entry.entryId));
+        List<Entry> entries = new ArrayList<>(candidates.size());
+        int index = 0;
+        for (int[] counts : claimed) {
+            for (int count : counts) {
+                if (count == 1) {
+                    entries.add(candidates.get(index));
+                }
+                index++;
+            }
+        }
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        // memberId -> {금액 변화, 원장 행 수}
+        SortedMap<String, long[]> deltas = new TreeMap<>();
+        for (Entry entry : entries) {
+            if (entry.fromId != null) {
+                long[] delta = deltas.computeIfAbsent(entry.fromId, id -> new long[2]);
+                delta[0] -= entry.amount;
+                delta[1]++;
+            }
+            if (entry.toId != null) {
+                long[] delta = deltas.computeIfAbsent(entry.toId, id -> new long[2]);
+                delta[0] += entry.amount;
+                delta[1]++;
+            }
+        }
+
+        List<Map.Entry<String, long[]>> updates = new ArrayList<>(deltas.entrySet());
+        template.batchUpdate("update member set money = money + ?, version = version + ? where member_id = ?",
+                updates, updates.size(), (pstmt, update) -> {
+                    pstmt.setLong(1, update.getValue()[0]);
+                    pstmt.setLong(2, update.getValue()[1]);
+                    pstmt.setString(3, update.getKey());
+                });
+        return entries.size();
+    }
+
+    /**
+     * periodMillis 마다 남은 원장이 없을 때까지 반영
+     */
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                int compacted;
+                do {
+                    compacted = compact();
+                    log.debug("ledger compacted={}", compacted);
+                } while (compacted == batchSize);
+            } catch (RuntimeException e) {
+                log.warn("ledger compaction failed", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                // 진행 중인 반영이 끝난 뒤 반환 (close 직후 compact() 와 겹치지 않도록)
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    private static class Entry {
+        final long entryId;
+        final String fromId;
+        final String toId;
+        final int amount;
+
+        Entry(long entryId, String fromId, String toId, int amount) {
+            this.entryId = entryId;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.amount = amount;
+        }
+    }
+}
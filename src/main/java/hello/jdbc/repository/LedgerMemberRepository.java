@@ -0,0 +1,305 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 원장(ledger) 기반 잔액 데코레이터
+ * 입금/출금/이체는 member.money 를 바꾸지 않고 ledger 에 행을 추가(insert)만 한다.
+ * 이체 한 건 = ledger 한 행 (from_id, to_id, amount, tx_id)
+ *
+ * - 잔액 = member.money(스냅샷) + 아직 반영되지 않은(compacted = false) 원장의 입금 합 - 출금 합
+ * - 버전 = member.version + 반영되지 않은 원장 행 수 (LedgerCompactor 가 반영할 때 그만큼 member.version 을 올리므로 그대로 유지)
+ * - 입금: member 행을 잠그지 않으므로 인기 회원에게 입금이 몰려도 줄 서지 않는다.
+ * - 출금/이체: 잔액 검사를 위해 출금 회원 행만 잠근다. (같은 회원의 동시 출금이 잔액을 넘지 않도록)
+ * - 잔액 지정(update, updateIfVersion, upsert): 반영되지 않은 원장 합을 빼서 member.money 에 씀
+ *
+ * 원장 반영은 LedgerCompactor 가 주기적으로 수행한다.
+ * 삭제: 한 트랜잭션에서 그 회원의 원장만 반영(LedgerCompactor 와 같은 순서로 회원 행 -> 원장 행 잠금)한 뒤 삭제한다.
+ * 반영할 원장을 읽은 뒤 들어온 이체나, 삭제 커밋 직전에 회원을 읽은 입금은 삭제 후에도 원장 행을 남길 수 있다.
+ * 이런 행은 같은 memberId 로 다시 저장할 때 그 회원 쪽(from_id, to_id)을 지우므로 새 회원 잔액에 영향이 없다. (상대 회원 쪽은 그대로 반영)
+ * 잔액 조회는 member 와 ledger 를 한 문장으로 읽으므로 반영 중이어도 같은 금액이 보인다.
+ * target 은 같은 DataSource 를 쓰는 MemberRepository 여야 한다. (같은 트랜잭션 커넥션 공유)
+ */
+@Slf4j
+public class LedgerMemberRepository implements MemberRepository {
+
+    private static final String SUMMED = "select m.member_id,"
+            + " m.money"
+            + " + (select coalesce(sum(amount), 0) from ledger where to_id = m.member_id and compacted = false)"
+            + " - (select coalesce(sum(amount), 0) from ledger where from_id = m.member_id and compacted = false) money,"
+            + " m.version"
+            + " + (select count(*) from ledger where to_id = m.member_id and compacted = false)"
+            + " + (select count(*) from ledger where from_id = m.member_id and compacted = false) version"
+            + " from member m";
+    /**
+     * 출금 잔액 검사용: 버전 없이 잔액만, member 행 잠금
+     */
+    private static final String LOCK_BALANCE = "select m.money"
+            + " + (select coalesce(sum(amount), 0) from ledger where to_id = m.member_id and compacted = false)"
+            + " - (select coalesce(sum(amount), 0) from ledger where from_id = m.member_id and compacted = false)"
+            + " from member m where m.member_id = ? for update";
+    private static final InListQuery IN_QUERY = new InListQuery(SUMMED + " where m.member_id in ");
+    private static final String INSERT = "insert into ledger(tx_id, from_id, to_id, amount) values (?, ?, ?, ?)";
+
+    private final MemberRepository target;
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+    private final LedgerCompactor memberCompactor;
+
+    public LedgerMemberRepository(MemberRepository target, DataSource dataSource) {
+        this.target = target;
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.memberCompactor = new LedgerCompactor(dataSource, 1);
+    }
+
+    /**
+     * 이체: 출금 회원 행을 잠그고 잔액이 충분하면 원장 한 행 추가
+     * 잔액 부족, 회원 없음이면 false
+     */
+    public boolean transfer(String fromId, String toId, int money, String txId) {
+        return txTemplate.execute(status -> {
+            if (!lockAndCheckBalance(fromId, money)) {
+                return false;
+            }
+            String sql = "insert into ledger(tx_id, from_id, to_id, amount) select ?, ?, member_id, ? from member where member_id = ?";
+            if (template.update(sql, txId, fromId, money, toId) == 1) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        });
+    }
+
+    @Override
+    public Member save(Member member) {
+        return txTemplate.execute(status -> {
+            detachStaleEntries(List.of(member));
+            return target.save(member);
+        });
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        List<Member> members = template.query(SUMMED + " where m.member_id = ?", MemberRowMapper.INSTANCE, memberId);
+        if (members.isEmpty()) {
+            throw new NoSuchElementException("member not found memberId = " + memberId);
+        }
+        return members.get(0);
+    }
+
+    @Override
+    public Member findByIdForUpdate(String memberId) {
+        return txTemplate.execute(status -> {
+            Member member = lockAndRead(memberId);
+            if (member == null) {
+                throw new NoSuchElementException("member not found memberId = " + memberId);
+            }
+            return member;
+        });
+    }
+
+    @Override
+    public Map<String, Member> findAllByIds(Collection<String> memberIds) {
+        List<String> ids = InListQuery.distinct(memberIds);
+        Map<String, Member> result = new HashMap<>(InListQuery.mapCapacity(ids.size()));
+
+        int from = 0;
+        while (from < ids.size()) {
+            int shapeIndex = InListQuery.shapeIndex(ids.size() - from);
+            int shape = InListQuery.shapeSize(shapeIndex);
+            int chunkFrom = from;
+            template.query(IN_QUERY.sql(shapeIndex),
+                    pstmt -> InListQuery.bind(pstmt, ids, chunkFrom, shape),
+                    rs -> {
+                        Member member = MemberRowMapper.INSTANCE.mapRow(rs, 0);
+                        result.put(member.getMemberId(), member);
+                    });
+            from += shape;
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+        return template.queryForStream(con -> {
+            PreparedStatement pstmt = con.prepareStatement(SUMMED, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            return pstmt;
+        }, MemberRowMapper.INSTANCE);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        txTemplate.executeWithoutResult(status -> {
+            if (lockAndRead(memberId) != null) {
+                setBalance(memberId, money);
+            }
+        });
+    }
+
+    @Override
+    public boolean updateIfVersion(String memberId, int money, long expectedVersion) {
+        return txTemplate.execute(status -> {
+            Member current = lockAndRead(memberId);
+            if (current == null || current.getVersion() != expectedVersion) {
+                return false;
+            }
+            setBalance(memberId, money);
+            return true;
+        });
+    }
+
+    /**
+     * 회원 행을 잠그고 그 회원의 원장만 반영한 뒤 삭제 (한 트랜잭션)
+     */
+    @Override
+    public void delete(String memberId) {
+        txTemplate.executeWithoutResult(status -> compactAndDelete(List.of(memberId)));
+    }
+
+    @Override
+    public boolean withdraw(String memberId, int money) {
+        return txTemplate.execute(status -> {
+            if (!lockAndCheckBalance(memberId, money)) {
+                return false;
+            }
+            template.update(INSERT, UUID.randomUUID().toString(), memberId, null, money);
+            return true;
+        });
+    }
+
+    /**
+     * 입금: 회원이 있으면 원장 한 행 추가, member 행은 잠그지 않음
+     */
+    @Override
+    public boolean deposit(String memberId, int money) {
+        String sql = "insert into ledger(tx_id, to_id, amount) select ?, member_id, ? from member where member_id = ?";
+        return template.update(sql, UUID.randomUUID().toString(), money, memberId) == 1;
+    }
+
+    @Override
+    public int[] withdrawAll(List<Transfer> transfers) {
+        int[] rowCounts = new int[transfers.size()];
+        for (int i = 0; i < rowCounts.length; i++) {
+            Transfer transfer = transfers.get(i);
+            rowCounts[i] = withdraw(transfer.getFromId(), transfer.getMoney()) ? 1 : 0;
+        }
+        return rowCounts;
+    }
+
+    @Override
+    public int[] depositAll(List<Transfer> transfers) {
+        int[] rowCounts = new int[transfers.size()];
+        for (int i = 0; i < rowCounts.length; i++) {
+            Transfer transfer = transfers.get(i);
+            rowCounts[i] = deposit(transfer.getToId(), transfer.getMoney()) ? 1 : 0;
+        }
+        return rowCounts;
+    }
+
+    @Override
+    public void saveAll(Collection<Member> members) {
+        txTemplate.executeWithoutResult(status -> {
+            detachStaleEntries(members);
+            target.saveAll(members);
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Member> members) {
+        txTemplate.executeWithoutResult(status -> {
+            for (Member member : members) {
+                update(member.getMemberId(), member.getMoney());
+            }
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<String> memberIds) {
+        txTemplate.executeWithoutResult(status -> compactAndDelete(memberIds));
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        return upsertAll(List.of(member));
+    }
+
+    /**
+     * 있는 회원은 잔액 지정, 없는 회원은 저장 (회원마다 한 문장씩, 원장 모델에서는 드문 작업)
+     */
+    @Override
+    public UpsertResult upsertAll(Collection<Member> members) {
+        return txTemplate.execute(status -> {
+            int inserted = 0;
+            int updated = 0;
+            for (Member member : members) {
+                if (lockAndRead(member.getMemberId()) != null) {
+                    setBalance(member.getMemberId(), member.getMoney());
+                    updated++;
+                } else {
+                    detachStaleEntries(List.of(member));
+                    target.save(member);
+                    inserted++;
+                }
+            }
+            return new UpsertResult(inserted, updated);
+        });
+    }
+
+    /**
+     * 회원들의 원장 반영 후 삭제 (트랜잭션 안에서 호출)
+     * 반영하면서 회원 행과 상대 회원 행을 memberId 순서로 잠근다. 잠근 뒤에는 이 회원에서 출금하는 이체가 들어올 수 없다.
+     */
+    private void compactAndDelete(Collection<String> memberIds) {
+        memberCompactor.compactMembers(memberIds);
+        target.deleteAll(memberIds);
+    }
+
+    /**
+     * 삭제된 같은 memberId 로 남은 반영되지 않은 원장의 그 회원 쪽을 지움 (새로 저장하는 회원 잔액에 영향이 없도록, 트랜잭션 안에서 호출)
+     */
+    private void detachStaleEntries(Collection<Member> members) {
+        template.batchUpdate("update ledger set to_id = null where to_id = ? and compacted = false",
+                members, Math.max(members.size(), 1), (pstmt, member) -> pstmt.setString(1, member.getMemberId()));
+        template.batchUpdate("update ledger set from_id = null where from_id = ? and compacted = false",
+                members, Math.max(members.size(), 1), (pstmt, member) -> pstmt.setString(1, member.getMemberId()));
+    }
+
+    /**
+     * member 행을 잠그고 원장까지 합친 잔액 조회, 없으면 null (트랜잭션 안에서 호출)
+     */
+    private Member lockAndRead(String memberId) {
+        List<Member> members = template.query(SUMMED + " where m.member_id = ? for update", MemberRowMapper.INSTANCE, memberId);
+        return members.isEmpty() ? null : members.get(0);
+    }
+
+    /**
+     * member 행을 잠그고 잔액이 money 이상인지 (트랜잭션 안에서 호출)
+     */
+    private boolean lockAndCheckBalance(String memberId, int money) {
+        List<Integer> balances = template.queryForList(LOCK_BALANCE, Integer.class, memberId);
+        return !balances.isEmpty() && balances.get(0) >= money;
+    }
+
+    /**
+     * 반영되지 않은 원장 합을 빼서 member.money 에 쓰므로 잔액 = money (member 행을 잠근 상태에서 호출)
+     */
+    private void setBalance(String memberId, int money) {
+        Member member = findById(memberId);
+        Integer snapshot = template.queryForObject("select money from member where member_id = ?", Integer.class, memberId);
+        int pending = member.getMoney() - snapshot;
+        target.update(memberId, money - pending);
+    }
+}
@@ -1,10 +1,83 @@
 package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface MemberRepository {
     Member save(Member member);
     Member findById(String memberId);
+
+    /**
+     * select ... for update: 트랜잭션이 끝날 때까지 행 잠금
+     */
+    Member findByIdForUpdate(String memberId);
     void update(String memberId, int money);
+
+    /**
+     * 낙관적 락 갱신: 버전이 expectedVersion 일 때만 money 를 바꾸고 버전 1 증가
+     * 그 사이 다른 트랜잭션이 바꿨으면(또는 회원이 없으면) 예외 없이 false
+     */
+    boolean updateIfVersion(String memberId, int money, long expectedVersion);
     void delete(String memberId);
+
+    /**
+     * 조회 없이 DB 에서 바로 잔액 변경
+     * withdraw: 잔액이 충분할 때만 차감, 변경된 행이 없으면(잔액 부족, 회원 없음) false
+     * deposit: 변경된 행이 없으면(회원 없음) false
+     */
+    boolean withdraw(String memberId, int money);
+    boolean deposit(String memberId, int money);
+
+    /**
+     * withdraw / deposit 일괄 처리, 이체 순서대로 변경된 행 수(1 이면 성공) 반환
+     * withdrawAll: fromId 에서 차감, depositAll: toId 에 증가
+     */
+    int[] withdrawAll(List<Transfer> transfers);
+    int[] depositAll(List<Transfer> transfers);
+
+    /**
+     * 다건 조회: 없는 회원은 결과에서 빠짐
+     */
+    Map<String, Member> findAllByIds(Collection<String> memberIds);
+
+    /**
+     * 전체 회원 스트리밍 조회: forward-only, read-only ResultSet 을 fetchSize 행씩 읽음
+     * Stream 을 닫아야 커넥션이 반납된다. (try-with-resources 사용)
+     */
+    Stream<Member> streamAll(int fetchSize);
+
+    default void forEachMember(int fetchSize, Consumer<Member> action) {
+        try (Stream<Member> members = streamAll(fetchSize)) {
+            members.forEach(action);
+        }
+    }
+
+    /**
+     * 전체 회원 순회 - 구현체는 행마다 새 객체를 만들지 않고 같은 Member 에 채워서 action 호출할 수 있다.
+     * action 이 받은 Member 를 보관하면 안 됨 (다음 행으로 덮어씀), 필요하면 복사할 것
+     */
+    default void forEachMemberInPlace(int fetchSize, Consumer<Member> action) {
+        forEachMember(fetchSize, action);
+    }
+
+    /**
+     * 일괄 처리: addBatch/executeBatch 로 묶어서 전송
+     */
+    void saveAll(Collection<Member> members);
+    void updateAll(Collection<Member> members);
+    void deleteAll(Collection<String> memberIds);
+
+    /**
+     * upsert: 없으면 추가, 있으면 money 갱신
+     * 이미 있는 회원이어도 중복키 예외가 생기지 않는다. (insert 실패 -> update 두 번 왕복 대신 한 문장)
+     * upsertAll 에 같은 회원이 여러 번 있으면 순서대로 적용되고 두 번째부터는 갱신으로 센다.
+     */
+    UpsertResult upsert(Member member);
+    UpsertResult upsertAll(Collection<Member> members);
 }
@@ -9,4 +9,6 @@ public interface MemberRepositoryEx {
 	 Member findById(String memberId) throws SQLException;
 	 void update(String memberId, int money) throws SQLException;
 	 void delete(String memberId) throws SQLException;
+	 boolean withdraw(String memberId, int money) throws SQLException;
+	 boolean deposit(String memberId, int money) throws SQLException;
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.connection.ConnectionTrace;
 import hello.jdbc.domain.Member;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.support.JdbcUtils;
@@ -144,7 +145,7 @@ public class MemberRepositoryV1 {
      */
     private Connection getConnection() throws SQLException {
         Connection con = dataSource.getConnection();
-        log.info("get connection={}, class={}", con, con.getClass());
+        ConnectionTrace.trace(con);
         return con;
     }
 }
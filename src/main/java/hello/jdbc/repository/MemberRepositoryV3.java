@@ -1,5 +1,6 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.connection.ConnectionTrace;
 import hello.jdbc.domain.Member;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.datasource.DataSourceUtils;
@@ -9,6 +10,8 @@ import javax.sql.DataSource;
 import java.sql.*;
 import java.util.NoSuchElementException;
 
+import static hello.jdbc.repository.MemberRowMapper.COLUMNS;
+
 /**
  * 트랜잭션 - 트랜잭션 매니저
  * DataSourceUtils.getConnection()
@@ -17,10 +20,14 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class MemberRepositoryV3 implements MemberRepositoryEx{
 
+    private static final int STATEMENT_CACHE_SIZE = 16;
+
     private final DataSource dataSource;
+    private final TransactionStatementCache statements;
 
     public MemberRepositoryV3(DataSource dataSource) {
         this.dataSource = dataSource;
+        this.statements = new TransactionStatementCache(dataSource, STATEMENT_CACHE_SIZE);
     }
 
     public Member save(Member member) throws SQLException {
@@ -31,7 +38,7 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             // SQL 파라미터 바인딩
             pstmt.setString(1, member.getMemberId());
@@ -48,7 +55,7 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
     }
 
     public Member findById(String memberId) throws SQLException {
-        String sql = "select * from member where member_id = ?";
+        String sql = "select " + COLUMNS + " from member where member_id = ?";
 
         Connection con = null;
         PreparedStatement pstmt = null;
@@ -56,7 +63,7 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery();  // select 결과 담음
@@ -66,10 +73,7 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
               next() -> true, false 반환
              */
             if (rs.next()) {
-                Member member = new Member();
-                member.setMemberId(rs.getString("member_id"));
-                member.setMoney(rs.getInt("money"));
-                return member;
+                return MemberRowMapper.INSTANCE.mapRow(rs, 0);
             } else {
                 throw new NoSuchElementException("member not found memberId = " + memberId);
             }
@@ -86,14 +90,14 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
      * 회원 수정
      */
     public void update(String memberId, int money) throws SQLException {
-        String sql = "update member set money=? where member_id=?";
+        String sql = "update member set money=?, version=version+1 where member_id=?";
 
         Connection con = null;
         PreparedStatement pstmt = null;
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             // SQL 파라미터 바인딩
             pstmt.setInt(1, money);
@@ -109,6 +113,57 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
         }
     }
 
+    /**
+     * 잔액 차감 - 잔액이 충분할 때만 차감, 조회 없이 DB 에서 계산
+     */
+    public boolean withdraw(String memberId, int money) throws SQLException {
+        String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            // SQL 파라미터 바인딩
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            pstmt.setInt(3, money);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            log.error("db error", e);
+            throw e;
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 잔액 증가 - 조회 없이 DB 에서 계산
+     */
+    public boolean deposit(String memberId, int money) throws SQLException {
+        String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            // SQL 파라미터 바인딩
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            log.error("db error", e);
+            throw e;
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
     /**
      * 회원 삭제
      */
@@ -120,7 +175,7 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             pstmt.setString(1, memberId);
             pstmt.executeUpdate();// DB에 쿼리 실행
@@ -138,7 +193,7 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
      */
     private void close(Connection con, Statement stmt, ResultSet rs) {
         JdbcUtils.closeResultSet(rs);
-        JdbcUtils.closeStatement(stmt);
+        statements.release(stmt);
         // 주의! 트랜잭션 동기화를 사용하려면 DataSourceUtils 를 사용해야 한다.
         DataSourceUtils.releaseConnection(con, dataSource);
 //        JdbcUtils.closeConnection(con);
@@ -150,7 +205,7 @@ public class MemberRepositoryV3 implements MemberRepositoryEx{
     private Connection getConnection() throws SQLException {
         // 주의! 트랜잭션 동기화를 사용하려면 DataSourceUtils 를 사용해야 한다.
         Connection con = DataSourceUtils.getConnection(dataSource);
-        log.info("get connection={}, class={}", con, con.getClass());
+        ConnectionTrace.trace(con);
         return con;
     }
 }
@@ -1,14 +1,21 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.connection.ConnectionTrace;
 import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
 import hello.jdbc.repository.ex.MyDbException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.NoSuchElementException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static hello.jdbc.repository.MemberRowMapper.COLUMNS;
 
 /**
  * 예외 누수 문제 해결
@@ -19,10 +26,33 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class MemberRepositoryV4_1 implements MemberRepository {
 
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 16;
+    private static final InListQuery IN_QUERY = new InListQuery("select " + COLUMNS + " from member where member_id in ");
+
     private final DataSource dataSource;
+    private final int batchSize;
+    private final TransactionStatementCache statements;
+    private final MemberUpsert upsert = new MemberUpsert();
 
     public MemberRepositoryV4_1(DataSource dataSource) {
+        this(dataSource, DEFAULT_BATCH_SIZE);
+    }
+
+    public MemberRepositoryV4_1(DataSource dataSource, int batchSize) {
+        this(dataSource, batchSize, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * statementCacheSize: 트랜잭션 안에서 재사용할 PreparedStatement 최대 개수, 0 이면 재사용 안 함
+     */
+    public MemberRepositoryV4_1(DataSource dataSource, int batchSize, int statementCacheSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
         this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.statements = new TransactionStatementCache(dataSource, statementCacheSize);
     }
 
     @Override
@@ -34,7 +64,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             // SQL 파라미터 바인딩
             pstmt.setString(1, member.getMemberId());
@@ -50,7 +80,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
     @Override
     public Member findById(String memberId) {
-        String sql = "select * from member where member_id = ?";
+        String sql = "select " + COLUMNS + " from member where member_id = ?";
 
         Connection con = null;
         PreparedStatement pstmt = null;
@@ -58,7 +88,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery();  // select 결과 담음
@@ -68,10 +98,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
               next() -> true, false 반환
              */
             if (rs.next()) {
-                Member member = new Member();
-                member.setMemberId(rs.getString("member_id"));
-                member.setMoney(rs.getInt("money"));
-                return member;
+                return MemberRowMapper.INSTANCE.mapRow(rs, 0);
             } else {
                 throw new NoSuchElementException("member not found memberId = " + memberId);
             }
@@ -83,19 +110,157 @@ public class MemberRepositoryV4_1 implements MemberRepository {
         }
     }
 
+    /**
+     * 회원 조회 + 행 잠금
+     * 트랜잭션 안에서 호출해야 의미가 있다. 잠금은 커밋/롤백 시 해제
+     */
+    @Override
+    public Member findByIdForUpdate(String memberId) {
+        String sql = "select " + COLUMNS + " from member where member_id = ? for update";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return MemberRowMapper.INSTANCE.mapRow(rs, 0);
+            } else {
+                throw new NoSuchElementException("member not found memberId = " + memberId);
+            }
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    /**
+     * 회원 다건 조회
+     * IN 절을 최대 128 개씩 나눠 조회, 같은 모양의 PreparedStatement 는 호출 안에서 재사용
+     * 없는 회원은 결과 Map 에 포함되지 않는다.
+     */
+    @Override
+    public Map<String, Member> findAllByIds(Collection<String> memberIds) {
+        List<String> ids = InListQuery.distinct(memberIds);
+        Map<String, Member> result = new HashMap<>(InListQuery.mapCapacity(ids.size()));
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        Connection con = null;
+        PreparedStatement[] pstmts = new PreparedStatement[InListQuery.shapeCount()];
+        ResultSet rs = null;
+        String sql = null;
+
+        try {
+            con = getConnection();
+            int from = 0;
+            while (from < ids.size()) {
+                int shapeIndex = InListQuery.shapeIndex(ids.size() - from);
+                int shape = InListQuery.shapeSize(shapeIndex);
+                sql = IN_QUERY.sql(shapeIndex);
+                if (pstmts[shapeIndex] == null) {
+                    pstmts[shapeIndex] = con.prepareStatement(sql);
+                }
+                PreparedStatement pstmt = pstmts[shapeIndex];
+                InListQuery.bind(pstmt, ids, from, shape);
+
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Member member = MemberRowMapper.INSTANCE.mapRow(rs, 0);
+                    result.put(member.getMemberId(), member);
+                }
+                JdbcUtils.closeResultSet(rs);
+                rs = null;
+                from += shape;
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            JdbcUtils.closeResultSet(rs);
+            for (PreparedStatement pstmt : pstmts) {
+                JdbcUtils.closeStatement(pstmt);
+            }
+            close(con, null, null);
+        }
+    }
+
+    /**
+     * 전체 회원 스트리밍 조회
+     * 커넥션은 Stream 을 닫을 때 DataSourceUtils.releaseConnection 으로 반납 (트랜잭션 안이면 유지)
+     */
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+        String sql = "select " + COLUMNS + " from member";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            close(con, pstmt, rs);
+            throw new MyDbException(e);
+        }
+
+        Connection streamCon = con;
+        PreparedStatement streamPstmt = pstmt;
+        ResultSet streamRs = rs;
+        return MemberStreams.of(rs, MyDbException::new, () -> close(streamCon, streamPstmt, streamRs));
+    }
+
+    /**
+     * 전체 회원 순회 - 행마다 객체를 만들지 않고 Member 하나에 채워서 action 호출
+     */
+    @Override
+    public void forEachMemberInPlace(int fetchSize, Consumer<Member> action) {
+        String sql = "select " + COLUMNS + " from member";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+
+            Member member = new Member();
+            while (rs.next()) {
+                action.accept(MemberRowMapper.INSTANCE.fill(rs, member));
+            }
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
     /**
      * 회원 수정
      */
     @Override
     public void update(String memberId, int money) {
-        String sql = "update member set money=? where member_id=?";
+        String sql = "update member set money=?, version=version+1 where member_id=?";
 
         Connection con = null;
         PreparedStatement pstmt = null;
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             // SQL 파라미터 바인딩
             pstmt.setInt(1, money);
@@ -109,6 +274,107 @@ public class MemberRepositoryV4_1 implements MemberRepository {
         }
     }
 
+    /**
+     * 버전이 같을 때만 갱신, 변경된 행이 없으면 false
+     */
+    @Override
+    public boolean updateIfVersion(String memberId, int money, long expectedVersion) {
+        String sql = "update member set money=?, version=version+1 where member_id=? and version=?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            pstmt.setLong(3, expectedVersion);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 잔액 차감 - 잔액이 충분할 때만 차감, 조회 없이 DB 에서 계산
+     */
+    @Override
+    public boolean withdraw(String memberId, int money) {
+        String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            // SQL 파라미터 바인딩
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            pstmt.setInt(3, money);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 잔액 증가 - 조회 없이 DB 에서 계산
+     */
+    @Override
+    public boolean deposit(String memberId, int money) {
+        String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            // SQL 파라미터 바인딩
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 잔액 일괄 차감 - 잔액이 충분한 이체만 반영, 이체 순서대로 변경된 행 수 반환
+     */
+    @Override
+    public int[] withdrawAll(List<Transfer> transfers) {
+        String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+        return batchUpdate(sql, transfers, (pstmt, transfer) -> {
+            pstmt.setInt(1, transfer.getMoney());
+            pstmt.setString(2, transfer.getFromId());
+            pstmt.setInt(3, transfer.getMoney());
+        });
+    }
+
+    /**
+     * 잔액 일괄 증가 - 이체 순서대로 변경된 행 수 반환
+     */
+    @Override
+    public int[] depositAll(List<Transfer> transfers) {
+        String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+        return batchUpdate(sql, transfers, (pstmt, transfer) -> {
+            pstmt.setInt(1, transfer.getMoney());
+            pstmt.setString(2, transfer.getToId());
+        });
+    }
+
     /**
      * 회원 삭제
      */
@@ -121,7 +387,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             pstmt.setString(1, memberId);
             pstmt.executeUpdate();// DB에 쿼리 실행
@@ -132,12 +398,115 @@ public class MemberRepositoryV4_1 implements MemberRepository {
         }
     }
 
+    /**
+     * 회원 일괄 저장
+     */
+    @Override
+    public void saveAll(Collection<Member> members) {
+        String sql = "insert into member(member_id, money) values (?, ?)";
+        batchUpdate(sql, members, (pstmt, member) -> {
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+        });
+    }
+
+    /**
+     * 회원 일괄 수정
+     */
+    @Override
+    public void updateAll(Collection<Member> members) {
+        String sql = "update member set money=?, version=version+1 where member_id=?";
+        batchUpdate(sql, members, (pstmt, member) -> {
+            pstmt.setInt(1, member.getMoney());
+            pstmt.setString(2, member.getMemberId());
+        });
+    }
+
+    /**
+     * 회원 일괄 삭제
+     */
+    @Override
+    public void deleteAll(Collection<String> memberIds) {
+        String sql = "delete from member where member_id=?";
+        batchUpdate(sql, memberIds, (pstmt, memberId) -> pstmt.setString(1, memberId));
+    }
+
+    /**
+     * upsert 할 DB 지정, 지정하지 않으면 커넥션의 DB 이름으로 고름
+     */
+    public void setUpsertDialect(UpsertDialect dialect) {
+        upsert.setDialect(dialect);
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        return upsertAll(List.of(member));
+    }
+
+    /**
+     * 트랜잭션 밖에서 호출하면 128 명 단위 문장마다 커밋된다.
+     */
+    @Override
+    public UpsertResult upsertAll(Collection<Member> members) {
+        Connection con = null;
+        try {
+            con = getConnection();
+            return upsert.execute(con, members);
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, null, null);
+        }
+    }
+
+    /**
+     * batchSize 만큼 addBatch 후 executeBatch
+     */
+    private <T> int[] batchUpdate(String sql, Collection<T> items, ParameterizedPreparedStatementSetter<T> setter) {
+        int[] rowCounts = new int[items.size()];
+        if (items.isEmpty()) {
+            return rowCounts;
+        }
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+
+            int count = 0;
+            int done = 0;
+            for (T item : items) {
+                setter.setValues(pstmt, item);
+                pstmt.addBatch();
+                if (++count == batchSize) {
+                    done = copy(pstmt.executeBatch(), rowCounts, done);
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                copy(pstmt.executeBatch(), rowCounts, done);
+            }
+            return rowCounts;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    private static int copy(int[] chunkCounts, int[] rowCounts, int done) {
+        System.arraycopy(chunkCounts, 0, rowCounts, done, chunkCounts.length);
+        return done + chunkCounts.length;
+    }
+
     /**
      * 동기화된 커넥션 유지, 없으면 닫음
      */
     private void close(Connection con, Statement stmt, ResultSet rs) {
         JdbcUtils.closeResultSet(rs);
-        JdbcUtils.closeStatement(stmt);
+        statements.release(stmt);
         // 주의! 트랜잭션 동기화를 사용하려면 DataSourceUtils 를 사용해야 한다.
         DataSourceUtils.releaseConnection(con, dataSource);
 //        JdbcUtils.closeConnection(con);
@@ -149,7 +518,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
     private Connection getConnection() throws SQLException {
         // 주의! 트랜잭션 동기화를 사용하려면 DataSourceUtils 를 사용해야 한다.
         Connection con = DataSourceUtils.getConnection(dataSource);
-        log.info("get connection={}, class={}", con, con.getClass());
+        ConnectionTrace.trace(con);
         return con;
     }
 }
@@ -1,9 +1,12 @@
 package hello.jdbc.repository;
 
+import hello.jdbc.connection.ConnectionTrace;
 import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
 import hello.jdbc.repository.ex.MyDbException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
@@ -11,7 +14,11 @@ import org.springframework.jdbc.support.SQLExceptionTranslator;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.NoSuchElementException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static hello.jdbc.repository.MemberRowMapper.COLUMNS;
 
 /**
  * SQLExceptionTranslator 추가
@@ -19,12 +26,38 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class MemberRepositoryV4_2 implements MemberRepository {
 
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 16;
+    private static final InListQuery IN_QUERY = new InListQuery("select " + COLUMNS + " from member where member_id in ");
+
     private final DataSource dataSource;
     private final SQLExceptionTranslator exTranslator;
+    private final int batchSize;
+    private final TransactionStatementCache statements;
+    private final MemberUpsert upsert = new MemberUpsert();
 
     public MemberRepositoryV4_2(DataSource dataSource) {
+        this(dataSource, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * batchSize: saveAll/updateAll/deleteAll 에서 한 번의 executeBatch 로 보낼 건수
+     */
+    public MemberRepositoryV4_2(DataSource dataSource, int batchSize) {
+        this(dataSource, batchSize, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * statementCacheSize: 트랜잭션 안에서 재사용할 PreparedStatement 최대 개수, 0 이면 재사용 안 함
+     */
+    public MemberRepositoryV4_2(DataSource dataSource, int batchSize, int statementCacheSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
         this.dataSource = dataSource;
         this.exTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+        this.batchSize = batchSize;
+        this.statements = new TransactionStatementCache(dataSource, statementCacheSize);
     }
 
     @Override
@@ -36,7 +69,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             // SQL 파라미터 바인딩
             pstmt.setString(1, member.getMemberId());
@@ -55,7 +88,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
     @Override
     public Member findById(String memberId) {
-        String sql = "select * from member where member_id = ?";
+        String sql = "select " + COLUMNS + " from member where member_id = ?";
 
         Connection con = null;
         PreparedStatement pstmt = null;
@@ -63,7 +96,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery();  // select 결과 담음
@@ -73,10 +106,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
               next() -> true, false 반환
              */
             if (rs.next()) {
-                Member member = new Member();
-                member.setMemberId(rs.getString("member_id"));
-                member.setMoney(rs.getInt("money"));
-                return member;
+                return MemberRowMapper.INSTANCE.mapRow(rs, 0);
             } else {
                 throw new NoSuchElementException("member not found memberId = " + memberId);
             }
@@ -88,19 +118,157 @@ public class MemberRepositoryV4_2 implements MemberRepository {
         }
     }
 
+    /**
+     * 회원 조회 + 행 잠금
+     * 트랜잭션 안에서 호출해야 의미가 있다. 잠금은 커밋/롤백 시 해제
+     */
+    @Override
+    public Member findByIdForUpdate(String memberId) {
+        String sql = "select " + COLUMNS + " from member where member_id = ? for update";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return MemberRowMapper.INSTANCE.mapRow(rs, 0);
+            } else {
+                throw new NoSuchElementException("member not found memberId = " + memberId);
+            }
+        } catch (SQLException e) {
+            throw exTranslator.translate("findByIdForUpdate", sql, e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    /**
+     * 회원 다건 조회
+     * IN 절을 최대 128 개씩 나눠 조회, 같은 모양의 PreparedStatement 는 호출 안에서 재사용
+     * 없는 회원은 결과 Map 에 포함되지 않는다.
+     */
+    @Override
+    public Map<String, Member> findAllByIds(Collection<String> memberIds) {
+        List<String> ids = InListQuery.distinct(memberIds);
+        Map<String, Member> result = new HashMap<>(InListQuery.mapCapacity(ids.size()));
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        Connection con = null;
+        PreparedStatement[] pstmts = new PreparedStatement[InListQuery.shapeCount()];
+        ResultSet rs = null;
+        String sql = null;
+
+        try {
+            con = getConnection();
+            int from = 0;
+            while (from < ids.size()) {
+                int shapeIndex = InListQuery.shapeIndex(ids.size() - from);
+                int shape = InListQuery.shapeSize(shapeIndex);
+                sql = IN_QUERY.sql(shapeIndex);
+                if (pstmts[shapeIndex] == null) {
+                    pstmts[shapeIndex] = con.prepareStatement(sql);
+                }
+                PreparedStatement pstmt = pstmts[shapeIndex];
+                InListQuery.bind(pstmt, ids, from, shape);
+
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Member member = MemberRowMapper.INSTANCE.mapRow(rs, 0);
+                    result.put(member.getMemberId(), member);
+                }
+                JdbcUtils.closeResultSet(rs);
+                rs = null;
+                from += shape;
+            }
+            return result;
+        } catch (SQLException e) {
+            throw exTranslator.translate("findAllByIds", sql, e);
+        } finally {
+            JdbcUtils.closeResultSet(rs);
+            for (PreparedStatement pstmt : pstmts) {
+                JdbcUtils.closeStatement(pstmt);
+            }
+            close(con, null, null);
+        }
+    }
+
+    /**
+     * 전체 회원 스트리밍 조회
+     * 커넥션은 Stream 을 닫을 때 DataSourceUtils.releaseConnection 으로 반납 (트랜잭션 안이면 유지)
+     */
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+        String sql = "select " + COLUMNS + " from member";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            close(con, pstmt, rs);
+            throw exTranslator.translate("streamAll", sql, e);
+        }
+
+        Connection streamCon = con;
+        PreparedStatement streamPstmt = pstmt;
+        ResultSet streamRs = rs;
+        return MemberStreams.of(rs, e -> exTranslator.translate("streamAll", sql, e), () -> close(streamCon, streamPstmt, streamRs));
+    }
+
+    /**
+     * 전체 회원 순회 - 행마다 객체를 만들지 않고 Member 하나에 채워서 action 호출
+     */
+    @Override
+    public void forEachMemberInPlace(int fetchSize, Consumer<Member> action) {
+        String sql = "select " + COLUMNS + " from member";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+
+            Member member = new Member();
+            while (rs.next()) {
+                action.accept(MemberRowMapper.INSTANCE.fill(rs, member));
+            }
+        } catch (SQLException e) {
+            throw exTranslator.translate("forEachMemberInPlace", sql, e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
     /**
      * 회원 수정
      */
     @Override
     public void update(String memberId, int money) {
-        String sql = "update member set money=? where member_id=?";
+        String sql = "update member set money=?, version=version+1 where member_id=?";
 
         Connection con = null;
         PreparedStatement pstmt = null;
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             // SQL 파라미터 바인딩
             pstmt.setInt(1, money);
@@ -114,6 +282,107 @@ public class MemberRepositoryV4_2 implements MemberRepository {
         }
     }
 
+    /**
+     * 버전이 같을 때만 갱신, 변경된 행이 없으면 false
+     */
+    @Override
+    public boolean updateIfVersion(String memberId, int money, long expectedVersion) {
+        String sql = "update member set money=?, version=version+1 where member_id=? and version=?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            pstmt.setLong(3, expectedVersion);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw exTranslator.translate("updateIfVersion", sql, e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 잔액 차감 - 잔액이 충분할 때만 차감, 조회 없이 DB 에서 계산
+     */
+    @Override
+    public boolean withdraw(String memberId, int money) {
+        String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            // SQL 파라미터 바인딩
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            pstmt.setInt(3, money);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw exTranslator.translate("withdraw", sql, e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 잔액 증가 - 조회 없이 DB 에서 계산
+     */
+    @Override
+    public boolean deposit(String memberId, int money) {
+        String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = statements.prepare(con, sql);
+
+            // SQL 파라미터 바인딩
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw exTranslator.translate("deposit", sql, e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 잔액 일괄 차감 - 잔액이 충분한 이체만 반영, 이체 순서대로 변경된 행 수 반환
+     */
+    @Override
+    public int[] withdrawAll(List<Transfer> transfers) {
+        String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+        return batchUpdate("withdrawAll", sql, transfers, (pstmt, transfer) -> {
+            pstmt.setInt(1, transfer.getMoney());
+            pstmt.setString(2, transfer.getFromId());
+            pstmt.setInt(3, transfer.getMoney());
+        });
+    }
+
+    /**
+     * 잔액 일괄 증가 - 이체 순서대로 변경된 행 수 반환
+     */
+    @Override
+    public int[] depositAll(List<Transfer> transfers) {
+        String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+        return batchUpdate("depositAll", sql, transfers, (pstmt, transfer) -> {
+            pstmt.setInt(1, transfer.getMoney());
+            pstmt.setString(2, transfer.getToId());
+        });
+    }
+
     /**
      * 회원 삭제
      */
@@ -126,7 +395,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = statements.prepare(con, sql);
 
             pstmt.setString(1, memberId);
             pstmt.executeUpdate();// DB에 쿼리 실행
@@ -137,12 +406,127 @@ public class MemberRepositoryV4_2 implements MemberRepository {
         }
     }
 
+    /**
+     * 회원 일괄 저장
+     * 트랜잭션 안에서 호출하면 전체가 하나의 트랜잭션, 밖에서 호출하면 청크마다 커밋된다.
+     */
+    @Override
+    public void saveAll(Collection<Member> members) {
+        String sql = "insert into member(member_id, money) values (?, ?)";
+        batchUpdate("saveAll", sql, members, (pstmt, member) -> {
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+        });
+    }
+
+    /**
+     * 회원 일괄 수정
+     */
+    @Override
+    public void updateAll(Collection<Member> members) {
+        String sql = "update member set money=?, version=version+1 where member_id=?";
+        batchUpdate("updateAll", sql, members, (pstmt, member) -> {
+            pstmt.setInt(1, member.getMoney());
+            pstmt.setString(2, member.getMemberId());
+        });
+    }
+
+    /**
+     * 회원 일괄 삭제
+     */
+    @Override
+    public void deleteAll(Collection<String> memberIds) {
+        String sql = "delete from member where member_id=?";
+        batchUpdate("deleteAll", sql, memberIds, (pstmt, memberId) -> pstmt.setString(1, memberId));
+    }
+
+    /**
+     * upsert 할 DB 지정, 지정하지 않으면 커넥션의 DB 이름으로 고름
+     */
+    public void setUpsertDialect(UpsertDialect dialect) {
+        upsert.setDialect(dialect);
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        return upsertAll(List.of(member));
+    }
+
+    /**
+     * 트랜잭션 밖에서 호출하면 128 명 단위 문장마다 커밋된다.
+     */
+    @Override
+    public UpsertResult upsertAll(Collection<Member> members) {
+        Connection con = null;
+        try {
+            con = getConnection();
+            return upsert.execute(con, members);
+        } catch (SQLException e) {
+            throw exTranslator.translate("upsertAll", null, e);
+        } finally {
+            close(con, null, null);
+        }
+    }
+
+    /**
+     * 커넥션 하나, PreparedStatement 하나로 batchSize 만큼 addBatch 후 executeBatch
+     * 예외는 실패한 청크 단위로 스프링 예외 계층으로 변환
+     */
+    private <T> int[] batchUpdate(String task, String sql, Collection<T> items,
+                                  ParameterizedPreparedStatementSetter<T> setter) {
+        int[] rowCounts = new int[items.size()];
+        if (items.isEmpty()) {
+            return rowCounts;
+        }
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+
+            int chunk = 0;
+            int count = 0;
+            int done = 0;
+            for (T item : items) {
+                setter.setValues(pstmt, item);
+                pstmt.addBatch();
+                if (++count == batchSize) {
+                    done = executeChunk(task, sql, pstmt, chunk++, rowCounts, done);
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                executeChunk(task, sql, pstmt, chunk, rowCounts, done);
+            }
+            return rowCounts;
+        } catch (SQLException e) {
+            throw exTranslator.translate(task, sql, e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 청크 실행 후 행 수를 rowCounts[done..] 에 복사, 다음 위치 반환
+     */
+    private int executeChunk(String task, String sql, PreparedStatement pstmt, int chunk, int[] rowCounts, int done) {
+        try {
+            int[] chunkCounts = pstmt.executeBatch();
+            System.arraycopy(chunkCounts, 0, rowCounts, done, chunkCounts.length);
+            return done + chunkCounts.length;
+        } catch (SQLException e) {
+            throw exTranslator.translate(task + " chunk=" + chunk, sql, e);
+        }
+    }
+
     /**
      * 동기화된 커넥션 유지, 없으면 닫음
      */
     private void close(Connection con, Statement stmt, ResultSet rs) {
         JdbcUtils.closeResultSet(rs);
-        JdbcUtils.closeStatement(stmt);
+        statements.release(stmt);
         // 주의! 트랜잭션 동기화를 사용하려면 DataSourceUtils 를 사용해야 한다.
         DataSourceUtils.releaseConnection(con, dataSource);
 //        JdbcUtils.closeConnection(con);
@@ -154,7 +538,7 @@ public class MemberRepositoryV4_2 implements MemberRepository {
     private Connection getConnection() throws SQLException {
         // 주의! 트랜잭션 동기화를 사용하려면 DataSourceUtils 를 사용해야 한다.
         Connection con = DataSourceUtils.getConnection(dataSource);
-        log.info("get connection={}, class={}", con, con.getClass());
+        ConnectionTrace.trace(con);
         return con;
     }
 }
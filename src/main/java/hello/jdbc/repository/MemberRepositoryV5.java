@@ -1,11 +1,20 @@
 package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
 import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static hello.jdbc.repository.MemberRowMapper.COLUMNS;
 
 /**
  * JdbcTemplate 사용
@@ -13,10 +22,26 @@ import javax.sql.DataSource;
 @Slf4j
 public class MemberRepositoryV5 implements MemberRepository {
 
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final InListQuery IN_QUERY = new InListQuery("select " + COLUMNS + " from member where member_id in ");
+
     private final JdbcTemplate template;
+    private final int batchSize;
+    private final MemberUpsert upsert = new MemberUpsert();
 
     public MemberRepositoryV5(DataSource dataSource) {
+        this(dataSource, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * batchSize: saveAll/updateAll/deleteAll 에서 한 번의 executeBatch 로 보낼 건수
+     */
+    public MemberRepositoryV5(DataSource dataSource, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
         this.template = new JdbcTemplate(dataSource);
+        this.batchSize = batchSize;
     }
 
     @Override
@@ -28,17 +53,71 @@ public class MemberRepositoryV5 implements MemberRepository {
 
     @Override
     public Member findById(String memberId) {
-        String sql = "select * from member where member_id = ?";
-        return template.queryForObject(sql, memberRowMapper(), memberId);
+        String sql = "select " + COLUMNS + " from member where member_id = ?";
+        return template.queryForObject(sql, MemberRowMapper.INSTANCE, memberId);
     }
 
-    private RowMapper<Member> memberRowMapper() {
-        return (rs, rowNum) -> {
-            Member member = new Member();
-            member.setMemberId(rs.getString("member_id"));
-            member.setMoney(rs.getInt("money"));
-            return member;
-        };
+    /**
+     * 회원 조회 + 행 잠금
+     * 트랜잭션 안에서 호출해야 의미가 있다. 잠금은 커밋/롤백 시 해제
+     */
+    @Override
+    public Member findByIdForUpdate(String memberId) {
+        String sql = "select " + COLUMNS + " from member where member_id = ? for update";
+        return template.queryForObject(sql, MemberRowMapper.INSTANCE, memberId);
+    }
+
+    /**
+     * 회원 다건 조회
+     * IN 절을 최대 128 개씩 나눠 조회, 없는 회원은 결과 Map 에 포함되지 않는다.
+     */
+    @Override
+    public Map<String, Member> findAllByIds(Collection<String> memberIds) {
+        List<String> ids = InListQuery.distinct(memberIds);
+        Map<String, Member> result = new HashMap<>(InListQuery.mapCapacity(ids.size()));
+
+        int from = 0;
+        while (from < ids.size()) {
+            int shapeIndex = InListQuery.shapeIndex(ids.size() - from);
+            int shape = InListQuery.shapeSize(shapeIndex);
+            int chunkFrom = from;
+            template.query(IN_QUERY.sql(shapeIndex),
+                    pstmt -> InListQuery.bind(pstmt, ids, chunkFrom, shape),
+                    rs -> {
+                        Member member = MemberRowMapper.INSTANCE.mapRow(rs, 0);
+                        result.put(member.getMemberId(), member);
+                    });
+            from += shape;
+        }
+        return result;
+    }
+
+    /**
+     * 전체 회원 스트리밍 조회
+     * JdbcTemplate.queryForStream: Stream 을 닫을 때 커넥션 반납 (트랜잭션 안이면 유지)
+     */
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+        String sql = "select " + COLUMNS + " from member";
+        return template.queryForStream(con -> {
+            PreparedStatement pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            return pstmt;
+        }, MemberRowMapper.INSTANCE);
+    }
+
+    /**
+     * 전체 회원 순회 - 행마다 객체를 만들지 않고 Member 하나에 채워서 action 호출
+     */
+    @Override
+    public void forEachMemberInPlace(int fetchSize, Consumer<Member> action) {
+        String sql = "select " + COLUMNS + " from member";
+        Member member = new Member();
+        template.query(con -> {
+            PreparedStatement pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            return pstmt;
+        }, (RowCallbackHandler) rs -> action.accept(MemberRowMapper.INSTANCE.fill(rs, member)));
     }
 
     /**
@@ -46,10 +125,79 @@ public class MemberRepositoryV5 implements MemberRepository {
      */
     @Override
     public void update(String memberId, int money) {
-        String sql = "update member set money=? where member_id=?";
+        String sql = "update member set money=?, version=version+1 where member_id=?";
         template.update(sql, money, memberId);
     }
 
+    /**
+     * 버전이 같을 때만 갱신, 변경된 행이 없으면 false
+     */
+    @Override
+    public boolean updateIfVersion(String memberId, int money, long expectedVersion) {
+        String sql = "update member set money=?, version=version+1 where member_id=? and version=?";
+        return template.update(sql, money, memberId, expectedVersion) == 1;
+    }
+
+    /**
+     * 잔액 차감 - 잔액이 충분할 때만 차감, 조회 없이 DB 에서 계산
+     */
+    @Override
+    public boolean withdraw(String memberId, int money) {
+        String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+        return template.update(sql, money, memberId, money) == 1;
+    }
+
+    /**
+     * 잔액 증가 - 조회 없이 DB 에서 계산
+     */
+    @Override
+    public boolean deposit(String memberId, int money) {
+        String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+        return template.update(sql, money, memberId) == 1;
+    }
+
+    /**
+     * 잔액 일괄 차감 - 잔액이 충분한 이체만 반영, 이체 순서대로 변경된 행 수 반환
+     */
+    @Override
+    public int[] withdrawAll(List<Transfer> transfers) {
+        String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+        return flatten(template.batchUpdate(sql, transfers, batchSize, (pstmt, transfer) -> {
+            pstmt.setInt(1, transfer.getMoney());
+            pstmt.setString(2, transfer.getFromId());
+            pstmt.setInt(3, transfer.getMoney());
+        }));
+    }
+
+    /**
+     * 잔액 일괄 증가 - 이체 순서대로 변경된 행 수 반환
+     */
+    @Override
+    public int[] depositAll(List<Transfer> transfers) {
+        String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+        return flatten(template.batchUpdate(sql, transfers, batchSize, (pstmt, transfer) -> {
+            pstmt.setInt(1, transfer.getMoney());
+            pstmt.setString(2, transfer.getToId());
+        }));
+    }
+
+    /**
+     * JdbcTemplate 은 청크별 결과(int[][])를 반환하므로 한 줄로 펼침
+     */
+    private static int[] flatten(int[][] chunkCounts) {
+        int size = 0;
+        for (int[] counts : chunkCounts) {
+            size += counts.length;
+        }
+        int[] rowCounts = new int[size];
+        int done = 0;
+        for (int[] counts : chunkCounts) {
+            System.arraycopy(counts, 0, rowCounts, done, counts.length);
+            done += counts.length;
+        }
+        return rowCounts;
+    }
+
     /**
      * 회원 삭제
      */
@@ -58,4 +206,55 @@ public class MemberRepositoryV5 implements MemberRepository {
         String sql = "delete from member where member_id=?";
         template.update(sql, memberId);
     }
+
+    /**
+     * 회원 일괄 저장
+     * JdbcTemplate 이 batchSize 단위로 executeBatch, 예외는 SQLExceptionTranslator 로 변환
+     */
+    @Override
+    public void saveAll(Collection<Member> members) {
+        String sql = "insert into member(member_id, money) values (?, ?)";
+        template.batchUpdate(sql, members, batchSize, (pstmt, member) -> {
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+        });
+    }
+
+    /**
+     * 회원 일괄 수정
+     */
+    @Override
+    public void updateAll(Collection<Member> members) {
+        String sql = "update member set money=?, version=version+1 where member_id=?";
+        template.batchUpdate(sql, members, batchSize, (pstmt, member) -> {
+            pstmt.setInt(1, member.getMoney());
+            pstmt.setString(2, member.getMemberId());
+        });
+    }
+
+    /**
+     * 회원 일괄 삭제
+     */
+    @Override
+    public void deleteAll(Collection<String> memberIds) {
+        String sql = "delete from member where member_id=?";
+        template.batchUpdate(sql, memberIds, batchSize, (pstmt, memberId) -> pstmt.setString(1, memberId));
+    }
+
+    /**
+     * upsert 할 DB 지정, 지정하지 않으면 커넥션의 DB 이름으로 고름
+     */
+    public void setUpsertDialect(UpsertDialect dialect) {
+        upsert.setDialect(dialect);
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        return upsertAll(List.of(member));
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Member> members) {
+        return template.execute((ConnectionCallback<UpsertResult>) con -> upsert.execute(con, members));
+    }
 }
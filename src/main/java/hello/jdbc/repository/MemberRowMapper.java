@@ -0,0 +1,75 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Member 행 매핑 - 컬럼 인덱스 사용
+ * rs.getString("member_id") 처럼 이름으로 읽으면 드라이버가 행마다 컬럼 이름을 찾는다.
+ * 조회 컬럼을 COLUMNS 순서로 명시하면 인덱스가 고정되므로 INSTANCE 를 그대로 쓰고,
+ * 컬럼 순서를 모르는 결과(select * 등)는 forShape 로 ResultSet 마다 한 번만 메타데이터에서 인덱스를 찾는다.
+ *
+ * 상태가 없으므로 여러 스레드에서 같은 인스턴스를 공유한다.
+ */
+public final class MemberRowMapper implements RowMapper<Member> {
+
+    /**
+     * 조회 컬럼 목록: "select " + COLUMNS + " from member ..." 결과는 INSTANCE 로 매핑
+     */
+    public static final String COLUMNS = "member_id, money, version";
+    public static final MemberRowMapper INSTANCE = new MemberRowMapper(1, 2, 3);
+
+    private final int memberIdIndex;
+    private final int moneyIndex;
+    private final int versionIndex;
+
+    private MemberRowMapper(int memberIdIndex, int moneyIndex, int versionIndex) {
+        this.memberIdIndex = memberIdIndex;
+        this.moneyIndex = moneyIndex;
+        this.versionIndex = versionIndex;
+    }
+
+    /**
+     * 결과 컬럼 모양에서 인덱스를 찾음, 첫 행을 읽기 전에 한 번 호출하고 모든 행에 재사용
+     * version 컬럼이 없는 결과는 version 0 으로 채움
+     */
+    public static MemberRowMapper forShape(ResultSetMetaData metaData) throws SQLException {
+        int memberIdIndex = 0;
+        int moneyIndex = 0;
+        int versionIndex = 0;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String label = metaData.getColumnLabel(i);
+            if (memberIdIndex == 0 && label.equalsIgnoreCase("member_id")) {
+                memberIdIndex = i;
+            } else if (moneyIndex == 0 && label.equalsIgnoreCase("money")) {
+                moneyIndex = i;
+            } else if (versionIndex == 0 && label.equalsIgnoreCase("version")) {
+                versionIndex = i;
+            }
+        }
+        if (memberIdIndex == 0 || moneyIndex == 0) {
+            throw new SQLException("member columns not found, columnCount=" + metaData.getColumnCount());
+        }
+        return memberIdIndex == 1 && moneyIndex == 2 && versionIndex == 3
+                ? INSTANCE : new MemberRowMapper(memberIdIndex, moneyIndex, versionIndex);
+    }
+
+    @Override
+    public Member mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return fill(rs, new Member());
+    }
+
+    /**
+     * 호출자가 준 객체에 현재 행을 채움 (대량 조회에서 행마다 객체를 만들지 않기 위해)
+     */
+    public Member fill(ResultSet rs, Member target) throws SQLException {
+        target.setMemberId(rs.getString(memberIdIndex));
+        target.setMoney(rs.getInt(moneyIndex));
+        target.setVersion(versionIndex == 0 ? 0 : rs.getLong(versionIndex));
+        return target;
+    }
+}
@@ -0,0 +1,47 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ResultSet 을 한 행씩 읽는 Stream
+ * 전체를 List 로 모으지 않으므로 테이블 크기와 상관없이 메모리 사용량이 일정하다.
+ */
+final class MemberStreams {
+
+    private MemberStreams() {
+    }
+
+    /**
+     * exceptionTranslator: 행을 읽다가 난 SQLException 변환
+     * onClose: Stream.close() 시 ResultSet, Statement, 커넥션 정리
+     */
+    static Stream<Member> of(ResultSet rs, Function<SQLException, RuntimeException> exceptionTranslator,
+                             Runnable onClose) {
+        Spliterator<Member> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Member> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    Member member = MemberRowMapper.INSTANCE.mapRow(rs, 0);
+                    action.accept(member);
+                    return true;
+                } catch (SQLException e) {
+                    throw exceptionTranslator.apply(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(onClose);
+    }
+}
@@ -0,0 +1,95 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * upsert 실행
+ * insert -> 중복키 예외 -> update 대신 한 문장으로 처리하므로 충돌 시에도 예외가 생기지 않는다.
+ *
+ * 여러 명은 InListQuery 와 같은 모양(1, 8, 32, 128 행)으로 나눠 보내고, 남는 자리는 null 행으로 채운다.
+ * merge 는 한 문장 안에서 같은 행을 두 번 바꿀 수 없으므로 같은 회원이 다시 나오면 거기서 문장을 끊는다.
+ * (다음 문장에서 갱신으로 적용되므로 입력 순서대로 적용된 결과와 같다)
+ * dialect 를 지정하지 않으면 처음 실행할 때 커넥션의 DB 이름으로 고른다.
+ */
+final class MemberUpsert {
+
+    private volatile UpsertDialect dialect;
+    private volatile String[] sqls;
+
+    void setDialect(UpsertDialect dialect) {
+        String[] sqls = new String[InListQuery.shapeCount()];
+        for (int i = 0; i < sqls.length; i++) {
+            sqls[i] = dialect.upsertSql(InListQuery.shapeSize(i));
+        }
+        this.sqls = sqls;
+        this.dialect = dialect;
+    }
+
+    UpsertResult execute(Connection con, Collection<Member> members) throws SQLException {
+        if (members.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+        if (dialect == null) {
+            setDialect(UpsertDialect.forProduct(con.getMetaData().getDatabaseProductName()));
+        }
+        UpsertDialect dialect = this.dialect;
+        String[] sqls = this.sqls;
+
+        List<Member> list = members instanceof List ? (List<Member>) members : new ArrayList<>(members);
+        int inserted = 0;
+        int updated = 0;
+        int from = 0;
+        Set<String> chunkIds = new HashSet<>();
+        while (from < list.size()) {
+            int rows = distinctRun(list, from, chunkIds);
+            int shapeIndex = InListQuery.shapeIndex(rows);
+            int shape = InListQuery.shapeSize(shapeIndex);
+
+            try (PreparedStatement pstmt = con.prepareStatement(sqls[shapeIndex])) {
+                bind(pstmt, list, from, rows, shape);
+                int chunkUpdated = dialect.executeAndCountUpdated(pstmt, shape);
+                updated += chunkUpdated;
+                inserted += rows - chunkUpdated;
+            }
+            from += rows;
+        }
+        return new UpsertResult(inserted, updated);
+    }
+
+    /**
+     * from 부터 같은 회원이 다시 나오기 전까지, 최대 MAX_SHAPE 명
+     */
+    private static int distinctRun(List<Member> members, int from, Set<String> chunkIds) {
+        chunkIds.clear();
+        int to = from;
+        while (to < members.size() && to - from < InListQuery.MAX_SHAPE
+                && chunkIds.add(members.get(to).getMemberId())) {
+            to++;
+        }
+        return to - from;
+    }
+
+    private static void bind(PreparedStatement pstmt, List<Member> members, int from, int rows, int shape)
+            throws SQLException {
+        for (int p = 0; p < shape; p++) {
+            if (p < rows) {
+                Member member = members.get(from + p);
+                pstmt.setString(p * 2 + 1, member.getMemberId());
+                pstmt.setInt(p * 2 + 2, member.getMoney());
+            } else {
+                pstmt.setNull(p * 2 + 1, Types.VARCHAR);
+                pstmt.setNull(p * 2 + 2, Types.INTEGER);
+            }
+        }
+    }
+}
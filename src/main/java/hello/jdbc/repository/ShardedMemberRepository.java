@@ -0,0 +1,358 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 인기 회원 잔액 분할 데코레이터
+ * 입금이 몰리는 회원은 잔액을 member 행 하나가 아니라 member_shard 의 shards 개 행에 나눠 받는다.
+ * 입금 트랜잭션이 서로 다른 행을 잠그므로 한 회원 행에 줄 서지 않는다.
+ *
+ * - 잔액 = member.money + 분할 행 money 합, 버전 = member.version + 분할 행 version 합 (어느 행이 바뀌어도 증가)
+ * - 입금(deposit): 분할 행 하나에 더함 (RANDOM: 무작위, THREAD: 스레드마다 고정 행), 분할 행이 없는 회원은 member 행에 더함
+ * - 출금(withdraw): member 행에서 먼저 차감, 모자라면 모든 행을 잠그고 분할 행을 member 행으로 쓸어 담은 뒤 차감
+ * - 잔액 지정(update, updateIfVersion, upsert): member 행에 쓰고 분할 행은 0 으로
+ *
+ * 분할은 enableShards(memberId) 로 회원마다 켠다.
+ * 이 인스턴스에서 켠 회원만 분할 행에 입금하므로 분할하지 않은 회원의 입금은 member 행 update 한 번이다.
+ * 다른 인스턴스가 켠 회원은 여기서도 enableShards 를 호출하기 전까지 member 행에 입금한다. (잔액은 그대로 맞음)
+ * 여러 행을 바꾸는 작업은 트랜잭션 안에서 실행한다. (이미 트랜잭션이 있으면 참여)
+ * target 은 같은 DataSource 를 쓰는 MemberRepository 여야 한다. (같은 트랜잭션 커넥션 공유)
+ */
+@Slf4j
+public class ShardedMemberRepository implements MemberRepository {
+
+    public enum ShardSelection {RANDOM, THREAD}
+
+    private static final String SUMMED = "select m.member_id, m.money + coalesce(sum(s.money), 0) money,"
+            + " m.version + coalesce(sum(s.version), 0) version"
+            + " from member m left join member_shard s on s.member_id = m.member_id";
+    private static final String GROUP_BY = " group by m.member_id, m.money, m.version";
+    private static final InListQuery IN_QUERY = new InListQuery(SUMMED + " where m.member_id in ", GROUP_BY);
+
+    private final MemberRepository target;
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+    private final int shards;
+    private final ShardSelection selection;
+
+    /**
+     * enableShards 로 분할 행을 만든 회원
+     */
+    private final Set<String> shardedIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * THREAD: 스레드가 처음 입금할 때 돌아가며 한 번 정하는 분할 행
+     */
+    private final AtomicInteger nextThreadShard = new AtomicInteger();
+    private final ThreadLocal<Integer> threadShard;
+
+    public ShardedMemberRepository(MemberRepository target, DataSource dataSource, int shards, ShardSelection selection) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+        }
+        this.target = target;
+        this.template = new JdbcTemplate(dataSource);
+        this.txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.shards = shards;
+        this.selection = selection;
+        this.threadShard = ThreadLocal.withInitial(() -> Math.floorMod(nextThreadShard.getAndIncrement(), shards));
+    }
+
+    /**
+     * 회원의 분할 행 0 ~ shards-1 생성 (이미 있으면 그대로)
+     */
+    public void enableShards(String memberId) {
+        String sql = "insert into member_shard(member_id, shard) select ?, ?"
+                + " where not exists (select 1 from member_shard where member_id = ? and shard = ?)";
+        List<Integer> shardNumbers = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            shardNumbers.add(shard);
+        }
+        template.batchUpdate(sql, shardNumbers, shards, (pstmt, shard) -> {
+            pstmt.setString(1, memberId);
+            pstmt.setInt(2, shard);
+            pstmt.setString(3, memberId);
+            pstmt.setInt(4, shard);
+        });
+        shardedIds.add(memberId);
+    }
+
+    @Override
+    public Member save(Member member) {
+        return target.save(member);
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        List<Member> members = template.query(SUMMED + " where m.member_id = ?" + GROUP_BY,
+                MemberRowMapper.INSTANCE, memberId);
+        if (members.isEmpty()) {
+            throw new NoSuchElementException("member not found memberId = " + memberId);
+        }
+        return members.get(0);
+    }
+
+    /**
+     * member 행과 분할 행 모두 잠금
+     */
+    @Override
+    public Member findByIdForUpdate(String memberId) {
+        return txTemplate.execute(status -> {
+            Member member = lockAndSum(memberId);
+            if (member == null) {
+                throw new NoSuchElementException("member not found memberId = " + memberId);
+            }
+            return member;
+        });
+    }
+
+    @Override
+    public Map<String, Member> findAllByIds(Collection<String> memberIds) {
+        List<String> ids = InListQuery.distinct(memberIds);
+        Map<String, Member> result = new HashMap<>(InListQuery.mapCapacity(ids.size()));
+
+        int from = 0;
+        while (from < ids.size()) {
+            int shapeIndex = InListQuery.shapeIndex(ids.size() - from);
+            int shape = InListQuery.shapeSize(shapeIndex);
+            int chunkFrom = from;
+            template.query(IN_QUERY.sql(shapeIndex),
+                    pstmt -> InListQuery.bind(pstmt, ids, chunkFrom, shape),
+                    rs -> {
+                        Member member = MemberRowMapper.INSTANCE.mapRow(rs, 0);
+                        result.put(member.getMemberId(), member);
+                    });
+            from += shape;
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+        String sql = SUMMED + GROUP_BY;
+        return template.queryForStream(con -> {
+            PreparedStatement pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            return pstmt;
+        }, MemberRowMapper.INSTANCE);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        txTemplate.executeWithoutResult(status -> {
+            target.update(memberId, money);
+            clearShards(memberId);
+        });
+    }
+
+    /**
+     * 버전(member + 분할 행 합)이 같을 때만 잔액 지정
+     */
+    @Override
+    public boolean updateIfVersion(String memberId, int money, long expectedVersion) {
+        return txTemplate.execute(status -> {
+            Member current = lockAndSum(memberId);
+            if (current == null || current.getVersion() != expectedVersion) {
+                return false;
+            }
+            target.update(memberId, money);
+            clearShards(memberId);
+            return true;
+        });
+    }
+
+    @Override
+    public void delete(String memberId) {
+        txTemplate.executeWithoutResult(status -> {
+            template.update("delete from member_shard where member_id = ?", memberId);
+            target.delete(memberId);
+        });
+        shardedIds.remove(memberId);
+    }
+
+    /**
+     * member 행 잔액으로 충분하면 그 행만 차감, 아니면 분할 행까지 모아서 차감
+     */
+    @Override
+    public boolean withdraw(String memberId, int money) {
+        return target.withdraw(memberId, money) || sweepAndWithdraw(memberId, money);
+    }
+
+    /**
+     * 분할 행 하나에 입금, 분할하지 않은 회원이면 member 행에 입금
+     */
+    @Override
+    public boolean deposit(String memberId, int money) {
+        if (shardedIds.contains(memberId)) {
+            String sql = "update member_shard set money = money + ?, version = version + 1 where member_id = ? and shard = ?";
+            if (template.update(sql, money, memberId, nextShard()) == 1) {
+                return true;
+            }
+        }
+        return target.deposit(memberId, money);
+    }
+
+    @Override
+    public int[] withdrawAll(List<Transfer> transfers) {
+        int[] rowCounts = target.withdrawAll(transfers);
+        for (int i = 0; i < rowCounts.length; i++) {
+            if (rowCounts[i] != 1) {
+                Transfer transfer = transfers.get(i);
+                rowCounts[i] = sweepAndWithdraw(transfer.getFromId(), transfer.getMoney()) ? 1 : 0;
+            }
+        }
+        return rowCounts;
+    }
+
+    @Override
+    public int[] depositAll(List<Transfer> transfers) {
+        int[] rowCounts = new int[transfers.size()];
+        List<Integer> sharded = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            if (shardedIds.contains(transfers.get(i).getToId())) {
+                sharded.add(i);
+            }
+        }
+        if (!sharded.isEmpty()) {
+            String sql = "update member_shard set money = money + ?, version = version + 1 where member_id = ? and shard = ?";
+            int[] shardCounts = flatten(template.batchUpdate(sql, sharded, sharded.size(), (pstmt, i) -> {
+                Transfer transfer = transfers.get(i);
+                pstmt.setInt(1, transfer.getMoney());
+                pstmt.setString(2, transfer.getToId());
+                pstmt.setInt(3, nextShard());
+            }), sharded.size());
+            for (int s = 0; s < shardCounts.length; s++) {
+                rowCounts[sharded.get(s)] = shardCounts[s];
+            }
+        }
+
+        List<Integer> unsharded = new ArrayList<>();
+        for (int i = 0; i < rowCounts.length; i++) {
+            if (rowCounts[i] != 1) {
+                unsharded.add(i);
+            }
+        }
+        if (!unsharded.isEmpty()) {
+            List<Transfer> rest = new ArrayList<>(unsharded.size());
+            for (int i : unsharded) {
+                rest.add(transfers.get(i));
+            }
+            int[] restCounts = target.depositAll(rest);
+            for (int r = 0; r < restCounts.length; r++) {
+                rowCounts[unsharded.get(r)] = restCounts[r];
+            }
+        }
+        return rowCounts;
+    }
+
+    @Override
+    public void saveAll(Collection<Member> members) {
+        target.saveAll(members);
+    }
+
+    @Override
+    public void updateAll(Collection<Member> members) {
+        txTemplate.executeWithoutResult(status -> {
+            target.updateAll(members);
+            clearShards(members);
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<String> memberIds) {
+        txTemplate.executeWithoutResult(status -> {
+            template.batchUpdate("delete from member_shard where member_id = ?", memberIds, Math.max(memberIds.size(), 1),
+                    (pstmt, memberId) -> pstmt.setString(1, memberId));
+            target.deleteAll(memberIds);
+        });
+        shardedIds.removeAll(memberIds);
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        return upsertAll(List.of(member));
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Member> members) {
+        return txTemplate.execute(status -> {
+            UpsertResult result = target.upsertAll(members);
+            clearShards(members);
+            return result;
+        });
+    }
+
+    /**
+     * 모든 행을 잠그고 합이 충분하면 member 행 = 합 - money, 분할 행 = 0
+     */
+    private boolean sweepAndWithdraw(String memberId, int money) {
+        return txTemplate.execute(status -> {
+            Member current = lockAndSum(memberId);
+            if (current == null || current.getMoney() < money) {
+                return false;
+            }
+            target.update(memberId, current.getMoney() - money);
+            clearShards(memberId);
+            return true;
+        });
+    }
+
+    /**
+     * member 행을 잠근 뒤(항상 member -> 분할 행 순서) 분할 행을 잠그고 합산, 없는 회원이면 null (트랜잭션 안에서 호출)
+     * target 마다 없는 회원 예외가 다르므로(NoSuchElementException, EmptyResultDataAccessException) member 행을 직접 잠근다.
+     */
+    private Member lockAndSum(String memberId) {
+        List<Member> members = template.query("select " + MemberRowMapper.COLUMNS + " from member where member_id = ? for update",
+                MemberRowMapper.INSTANCE, memberId);
+        if (members.isEmpty()) {
+            return null;
+        }
+        Member member = members.get(0);
+        template.query("select money, version from member_shard where member_id = ? for update",
+                rs -> {
+                    member.setMoney(member.getMoney() + rs.getInt(1));
+                    member.setVersion(member.getVersion() + rs.getLong(2));
+                }, memberId);
+        return member;
+    }
+
+    private void clearShards(String memberId) {
+        template.update("update member_shard set money = 0, version = version + 1 where member_id = ? and money <> 0", memberId);
+    }
+
+    private void clearShards(Collection<Member> members) {
+        template.batchUpdate("update member_shard set money = 0, version = version + 1 where member_id = ? and money <> 0",
+                members, Math.max(members.size(), 1), (pstmt, member) -> pstmt.setString(1, member.getMemberId()));
+    }
+
+    private int nextShard() {
+        if (selection == ShardSelection.THREAD) {
+            return threadShard.get();
+        }
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+
+    private static int[] flatten(int[][] chunkCounts, int size) {
+        int[] rowCounts = new int[size];
+        int done = 0;
+        for (int[] counts : chunkCounts) {
+            System.arraycopy(counts, 0, rowCounts, done, counts.length);
+            done += counts.length;
+        }
+        return rowCounts;
+    }
+}
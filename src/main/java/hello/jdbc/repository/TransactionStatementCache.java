@@ -0,0 +1,160 @@
+package hello.jdbc.repository;
+
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 트랜잭션 범위 PreparedStatement 캐시
+ * 트랜잭션 동기화된 커넥션(DataSourceUtils.getConnection)에서는 같은 SQL 의 PreparedStatement 를 닫지 않고 재사용한다.
+ * 계좌이체처럼 한 트랜잭션에서 같은 SQL 을 여러 번 실행하면 prepare(파싱, TCP 왕복)를 한 번만 한다.
+ *
+ * - 캐시는 TransactionSynchronizationManager 에 리소스로 묶이고, 트랜잭션이 끝나면(afterCompletion) 모두 닫힌다.
+ * - 최대 maxSize 개, 넘으면 가장 오래 쓰지 않은 statement 를 닫는다.
+ * - 트랜잭션 밖(자동 커밋)에서는 캐시하지 않고 매번 prepare / close
+ * - 배치, 스트리밍, IN 다건 조회처럼 상태가 남는 statement 는 캐시하지 않는다.
+ * - 캐시 인스턴스(리포지토리)마다 따로 묶인다. 같은 DataSource 를 쓰는 리포지토리끼리도 statement 와 maxSize 를 공유하지 않음
+ */
+final class TransactionStatementCache {
+
+    private final DataSource dataSource;
+    private final int maxSize;
+
+    /**
+     * maxSize = 0 이면 캐시 사용 안 함
+     */
+    TransactionStatementCache(DataSource dataSource, int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.dataSource = dataSource;
+        this.maxSize = maxSize;
+    }
+
+    PreparedStatement prepare(Connection con, String sql) throws SQLException {
+        Statements statements = statementsOf(con);
+        if (statements == null) {
+            return con.prepareStatement(sql);
+        }
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null) {
+            pstmt = con.prepareStatement(sql);
+            statements.put(sql, pstmt);
+        }
+        return pstmt;
+    }
+
+    /**
+     * 캐시된 statement 는 트랜잭션이 끝날 때 닫히므로 그대로 둠
+     */
+    void release(Statement stmt) {
+        if (stmt == null) {
+            return;
+        }
+        Statements statements = maxSize == 0 ? null
+                : (Statements) TransactionSynchronizationManager.getResource(this);
+        if (statements == null || !statements.containsValue(stmt)) {
+            JdbcUtils.closeStatement(stmt);
+        }
+    }
+
+    /**
+     * 트랜잭션 커넥션이면 바인딩된 캐시, 처음이면 만들어서 바인딩
+     */
+    private Statements statementsOf(Connection con) {
+        if (maxSize == 0
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || !DataSourceUtils.isConnectionTransactional(con, dataSource)) {
+            return null;
+        }
+        Statements statements = (Statements) TransactionSynchronizationManager.getResource(this);
+        if (statements != null) {
+            return statements.connection == con ? statements : null;
+        }
+        statements = new Statements(con, maxSize);
+        TransactionSynchronizationManager.bindResource(this, statements);
+        TransactionSynchronizationManager.registerSynchronization(new Cleanup(this, statements));
+        return statements;
+    }
+
+    private static final class Statements {
+        private final Connection connection;
+
+        /**
+         * accessOrder = true: 맨 앞이 가장 오래 쓰지 않은 statement
+         */
+        private final LinkedHashMap<String, PreparedStatement> cache;
+
+        Statements(Connection connection, int maxSize) {
+            this.connection = connection;
+            this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= maxSize) {
+                        return false;
+                    }
+                    JdbcUtils.closeStatement(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        PreparedStatement get(String sql) {
+            return cache.get(sql);
+        }
+
+        void put(String sql, PreparedStatement pstmt) {
+            cache.put(sql, pstmt);
+        }
+
+        boolean containsValue(Statement stmt) {
+            return cache.containsValue(stmt);
+        }
+
+        void closeAll() {
+            for (PreparedStatement pstmt : cache.values()) {
+                JdbcUtils.closeStatement(pstmt);
+            }
+            cache.clear();
+        }
+    }
+
+    /**
+     * 트랜잭션 종료 시 닫고 바인딩 해제, 트랜잭션이 보류(REQUIRES_NEW 등)되면 같이 보류
+     * afterCompletion 은 트랜잭션 매니저가 커넥션을 반납하기 전에 호출된다.
+     */
+    private static final class Cleanup implements TransactionSynchronization {
+        private final Object key;
+        private final Statements statements;
+
+        Cleanup(Object key, Statements statements) {
+            this.key = key;
+            this.statements = statements;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(key, statements);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            statements.closeAll();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.TransferReceipt;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 이체 영수증 저장소 (transfer_receipt, idempotency_key 가 기본 키)
+ * 이체와 같은 트랜잭션에서 저장해야 이체가 롤백되면 영수증도 남지 않는다.
+ */
+@Slf4j
+public class TransferReceiptRepository {
+
+    private final JdbcTemplate template;
+
+    public TransferReceiptRepository(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * 영수증 저장, 같은 key 가 이미 커밋되어 있으면 false (insert ... where not exists, 예외 없이 갱신 행 수로 판단)
+     * 같은 key 를 다른 트랜잭션이 저장 중이면 그 트랜잭션이 끝날 때까지 기다리고, 커밋되면 DuplicateKeyException 이 난다.
+     * PostgreSQL 등은 이 예외로 트랜잭션 전체가 중단되므로 잡아서 계속 쓰지 말고 롤백해야 한다.
+     */
+    public boolean insertIfAbsent(TransferReceipt receipt) {
+        String sql = "insert into transfer_receipt(idempotency_key, from_id, to_id, amount) " +
+                "select ?, ?, ?, ? where not exists (select 1 from transfer_receipt where idempotency_key = ?)";
+        return template.update(sql, receipt.getIdempotencyKey(), receipt.getFromId(), receipt.getToId(), receipt.getMoney(),
+                receipt.getIdempotencyKey()) == 1;
+    }
+
+    public Optional<TransferReceipt> findByKey(String idempotencyKey) {
+        String sql = "select idempotency_key, from_id, to_id, amount from transfer_receipt where idempotency_key = ?";
+        List<TransferReceipt> receipts = template.query(sql, (rs, rowNum) -> new TransferReceipt(
+                rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4)), idempotencyKey);
+        return receipts.stream().findFirst();
+    }
+
+    /**
+     * 오래된 영수증 정리, 삭제한 행 수 반환 (클라이언트가 더 이상 재시도하지 않을 만큼 지난 key)
+     */
+    public int deleteCreatedBefore(Timestamp threshold) {
+        return template.update("delete from transfer_receipt where created_at < ?", threshold);
+    }
+
+    public void delete(String idempotencyKey) {
+        template.update("delete from transfer_receipt where idempotency_key = ?", idempotencyKey);
+    }
+}
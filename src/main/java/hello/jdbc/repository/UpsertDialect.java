@@ -0,0 +1,37 @@
+package hello.jdbc.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * DB 별 upsert SQL
+ * 충돌(이미 있는 회원)을 예외 없이 한 문장 안에서 갱신으로 처리하고, 갱신된 행 수를 알려줘야 한다.
+ * 값이 같아 실제로 바뀌지 않은 행도 갱신으로 세어야 한다. (변경된 행 수만 알려주는 DB 는 그대로 쓸 수 없다)
+ * 기본 제공은 H2 뿐이고, 다른 DB 는 구현을 만들어 저장소의 setUpsertDialect 로 지정한다.
+ */
+public interface UpsertDialect {
+
+    /**
+     * rows 명을 upsert 하는 SQL, 파라미터는 (member_id, money) 를 rows 번 반복
+     * 한 문장 안에 같은 회원은 두 번 나오지 않는다.
+     * 남는 자리는 (null, null) 로 채우므로 member_id 가 null 인 행은 무시해야 한다.
+     */
+    String upsertSql(int rows);
+
+    /**
+     * 바인딩된 pstmt 실행 후 이미 있어서 갱신된 행 수 반환
+     */
+    int executeAndCountUpdated(PreparedStatement pstmt, int rows) throws SQLException;
+
+    /**
+     * DatabaseMetaData.getDatabaseProductName() 으로 dialect 선택
+     * 모르는 DB 면 IllegalStateException (setUpsertDialect 로 먼저 지정해야 함)
+     */
+    static UpsertDialect forProduct(String databaseProductName) {
+        if ("H2".equalsIgnoreCase(databaseProductName)) {
+            return H2UpsertDialect.INSTANCE;
+        }
+        throw new IllegalStateException("no built-in upsert dialect for " + databaseProductName
+                + ", call setUpsertDialect on the repository first");
+    }
+}
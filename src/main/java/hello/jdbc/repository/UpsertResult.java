@@ -0,0 +1,18 @@
+package hello.jdbc.repository;
+
+import lombok.Value;
+
+/**
+ * upsert 결과: 새로 추가된 회원 수, 이미 있어서 갱신된 회원 수
+ */
+@Value
+public class UpsertResult {
+    public static final UpsertResult EMPTY = new UpsertResult(0, 0);
+
+    int inserted;
+    int updated;
+
+    public UpsertResult plus(UpsertResult other) {
+        return new UpsertResult(inserted + other.inserted, updated + other.updated);
+    }
+}
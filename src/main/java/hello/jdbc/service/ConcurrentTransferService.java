@@ -0,0 +1,88 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Transfer;
+import hello.jdbc.domain.TransferResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 이체 처리
+ * MemberServiceV4.accountTransferAtomic 을 executor 스레드에서 실행하고 결과를 CompletableFuture 로 돌려준다.
+ *
+ * - PLATFORM: 플랫폼 스레드 풀, 동시에 진행되는 이체 수 = 스레드 수
+ * - VIRTUAL: 이체마다 가상 스레드 (Java 21+), 동시에 진행되는 이체 수는 maxInFlight 로만 제한
+ * 어느 쪽이든 실제 DB 작업 동시성은 커넥션 풀 크기로 제한된다. 나머지 이체는 커넥션을 기다린다.
+ *
+ * 가상 스레드가 synchronized 블록 안에서 JDBC 로 대기하면 캐리어 스레드를 붙잡는다(pinning).
+ * 그래서 리포지토리/커넥션 경로에서는 synchronized 대신 java.util.concurrent 락을 쓴다.
+ */
+@Slf4j
+public class ConcurrentTransferService implements AutoCloseable {
+
+    public enum Mode {PLATFORM, VIRTUAL}
+
+    private final MemberServiceV4 memberService;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    /**
+     * platformThreads: PLATFORM 모드 스레드 수 (VIRTUAL 에서는 무시)
+     * maxInFlight: 동시에 받아 둘 수 있는 이체 수, 넘으면 RejectedExecutionException
+     */
+    public ConcurrentTransferService(MemberServiceV4 memberService, Mode mode, int platformThreads, int maxInFlight) {
+        this.memberService = memberService;
+        this.executor = mode == Mode.VIRTUAL ? TransferExecutors.virtual() : TransferExecutors.platform(platformThreads);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 검증 실패(잔액 부족, 회원 없음)는 실패 결과로, DB 오류는 예외로 완료
+     */
+    public CompletableFuture<TransferResult> submit(String fromId, String toId, int money) {
+        Transfer transfer = new Transfer(fromId, toId, money);
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("too many in-flight transfers max=" + maxInFlight));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> transfer(transfer), executor)
+                    .whenComplete((result, e) -> inFlight.release());
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public int inFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TransferResult transfer(Transfer transfer) {
+        try {
+            memberService.accountTransferAtomic(transfer.getFromId(), transfer.getToId(), transfer.getMoney());
+            return TransferResult.success(transfer);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return TransferResult.failure(transfer, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package hello.jdbc.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 재시도 대기 시간 (지수 증가 + full jitter)
+ * attempt 번째 실패 후 [0, min(maxBackoff, baseBackoff * 2^(attempt-1))] 에서 무작위로 기다린다.
+ * 같이 충돌한 트랜잭션끼리 같은 시각에 다시 부딪히지 않도록 상한 안에서 고르게 흩어 놓는다.
+ */
+final class ExponentialBackoff {
+
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    ExponentialBackoff(long baseBackoffMillis, long maxBackoffMillis) {
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * attempt 번째 실패 후 기다릴 시간
+     */
+    long delayMillis(int attempt) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 30));
+        if (cap <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * attempt 번째 실패 후 대기, 인터럽트되면 인터럽트 상태를 되살리고 IllegalStateException
+     */
+    void sleep(int attempt) {
+        long delay = delayMillis(attempt);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.TransferReceipt;
+import hello.jdbc.repository.TransferReceiptRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 중복 이체 방지 (idempotency key)
+ * 클라이언트가 타임아웃 후 같은 key 로 다시 요청해도 출금은 한 번만 일어난다.
+ *
+ * - 최근 key 캐시(LRU, recentKeys 개): 커밋된 영수증이 있으면 트랜잭션을 열지 않고(커넥션 없이) 바로 반환
+ * - transfer_receipt 기본 키: 캐시에 없거나 다른 서버에서 처리한 key 는 영수증이 저장되지 않으므로 저장된 영수증 반환
+ *   같은 key 를 동시에 저장하다 기본 키 충돌(DuplicateKeyException)이 나면 트랜잭션을 롤백한 뒤 저장된 영수증을 읽는다.
+ * - 영수증은 이체와 같은 트랜잭션에서 저장: 이체가 실패(잔액 부족 등)해 롤백되면 key 도 남지 않아 다시 시도할 수 있다.
+ * - 이체는 MemberServiceV4.accountTransferAtomic (영수증 트랜잭션에 참여)
+ * - 같은 key 로 다른 이체(회원, 금액이 다름)를 요청하면 IllegalArgumentException
+ * - 같은 회원에게 이체할 수 없음
+ */
+@Slf4j
+public class IdempotentTransferService {
+
+    private final MemberServiceV4 memberService;
+    private final TransferReceiptRepository receiptRepository;
+    private final TransactionTemplate txTemplate;
+    private final int recentKeys;
+
+    /**
+     * accessOrder = true: 맨 앞이 가장 오래 사용하지 않은 key
+     */
+    private final LinkedHashMap<String, TransferReceipt> recent;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder storedHits = new LongAdder();
+
+    public IdempotentTransferService(MemberServiceV4 memberService, TransferReceiptRepository receiptRepository,
+                                     PlatformTransactionManager transactionManager, int recentKeys) {
+        if (recentKeys < 1) {
+            throw new IllegalArgumentException("recentKeys must be positive: " + recentKeys);
+        }
+        this.memberService = memberService;
+        this.receiptRepository = receiptRepository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.recentKeys = recentKeys;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TransferReceipt> eldest) {
+                return size() > IdempotentTransferService.this.recentKeys;
+            }
+        };
+    }
+
+    /**
+     * 처음 보는 key 면 이체 후 영수증 반환, 이미 처리한 key 면 이체 없이 처음 영수증 반환
+     */
+    public TransferReceipt accountTransfer(String idempotencyKey, String fromId, String toId, int money) {
+        if (money <= 0) {
+            throw new IllegalArgumentException("이체 금액은 0보다 커야 함 money=" + money);
+        }
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("같은 회원에게 이체할 수 없음 memberId=" + fromId);
+        }
+
+        TransferReceipt cached = lookup(idempotencyKey);
+        if (cached != null) {
+            cacheHits.increment();
+            return checkSameRequest(cached, fromId, toId, money);
+        }
+        TransferReceipt request = new TransferReceipt(idempotencyKey, fromId, toId, money);
+        try {
+            return txTemplate.execute(status -> transferOnce(request));
+        } catch (DuplicateKeyException e) {
+            return stored(request);
+        }
+    }
+
+    /**
+     * 영수증 저장에 성공한 트랜잭션만 이체, 이미 있으면 저장된 영수증 반환
+     */
+    private TransferReceipt transferOnce(TransferReceipt receipt) {
+        if (!receiptRepository.insertIfAbsent(receipt)) {
+            return stored(receipt);
+        }
+
+        memberService.accountTransferAtomic(receipt.getFromId(), receipt.getToId(), receipt.getMoney());
+        executed.increment();
+        rememberAfterCommit(receipt);
+        return receipt;
+    }
+
+    /**
+     * 이미 커밋된 영수증 반환
+     */
+    private TransferReceipt stored(TransferReceipt request) {
+        storedHits.increment();
+        TransferReceipt stored = receiptRepository.findByKey(request.getIdempotencyKey())
+                .orElseThrow(() -> new IllegalStateException("영수증 없음 idempotencyKey=" + request.getIdempotencyKey()));
+        remember(stored);
+        return checkSameRequest(stored, request.getFromId(), request.getToId(), request.getMoney());
+    }
+
+    /**
+     * threshold 이전에 저장된 영수증 정리, 삭제한 행 수 반환
+     * 캐시에는 저장 시각이 없으므로 캐시를 모두 비운다. (삭제된 key 를 캐시가 계속 중복으로 판단하지 않도록)
+     */
+    public int purgeReceiptsCreatedBefore(Timestamp threshold) {
+        int deleted = receiptRepository.deleteCreatedBefore(threshold);
+        synchronized (recent) {
+            recent.clear();
+        }
+        return deleted;
+    }
+
+    /**
+     * 실제로 이체한 횟수
+     */
+    public long executed() {
+        return executed.sum();
+    }
+
+    /**
+     * 최근 key 캐시에서 찾은 중복 요청 수
+     */
+    public long cacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * 캐시에 없어 transfer_receipt 에서 찾은 중복 요청 수
+     */
+    public long storedHits() {
+        return storedHits.sum();
+    }
+
+    private TransferReceipt lookup(String idempotencyKey) {
+        synchronized (recent) {
+            return recent.get(idempotencyKey);
+        }
+    }
+
+    private void remember(TransferReceipt receipt) {
+        synchronized (recent) {
+            recent.put(receipt.getIdempotencyKey(), receipt);
+        }
+    }
+
+    /**
+     * 커밋된 영수증만 캐시에 올림 (롤백된 이체의 key 는 다시 시도할 수 있어야 하므로)
+     */
+    private void rememberAfterCommit(TransferReceipt receipt) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(receipt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(receipt);
+            }
+        });
+    }
+
+    private static TransferReceipt checkSameRequest(TransferReceipt receipt, String fromId, String toId, int money) {
+        if (!receipt.isSameRequest(fromId, toId, money)) {
+            throw new IllegalArgumentException("다른 이체에 사용된 idempotency key: " + receipt.getIdempotencyKey());
+        }
+        return receipt;
+    }
+}
@@ -0,0 +1,40 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.LedgerMemberRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.UUID;
+
+/**
+ * 원장 이체
+ * 두 회원의 money 를 바꾸는 대신 원장에 한 행을 추가한다. 입금 회원 행은 잠그지 않으므로
+ * 인기 회원에게 이체가 몰려도 서로 기다리지 않는다. (출금 회원 행만 잔액 검사를 위해 잠금)
+ * 트랜잭션은 LedgerMemberRepository 가 연다. (이미 트랜잭션이 있으면 참여)
+ */
+@Slf4j
+public class LedgerTransferService {
+
+    private final LedgerMemberRepository ledgerRepository;
+
+    public LedgerTransferService(LedgerMemberRepository ledgerRepository) {
+        this.ledgerRepository = ledgerRepository;
+    }
+
+    /**
+     * 이체 후 원장 tx_id 반환
+     */
+    public String accountTransfer(String fromId, String toId, int money) {
+        if (money <= 0) {
+            throw new IllegalArgumentException("이체 금액은 0보다 커야 함 money=" + money);
+        }
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("같은 회원에게 이체할 수 없음 memberId=" + fromId);
+        }
+
+        String txId = UUID.randomUUID().toString();
+        if (!ledgerRepository.transfer(fromId, toId, money, txId)) {
+            throw new IllegalStateException("잔액 부족 또는 회원 없음 fromId=" + fromId + ", toId=" + toId);
+        }
+        return txId;
+    }
+}
@@ -0,0 +1,51 @@
+package hello.jdbc.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+/**
+ * 비관적 락 이체 + 재시도
+ * MemberRepositoryV4_2 / V5 의 예외 변환기가 만든 데드락(DeadlockLoserDataAccessException),
+ * 락 획득 실패(CannotAcquireLockException)는 모두 PessimisticLockingFailureException 이므로 트랜잭션 전체를 다시 실행한다.
+ * 트랜잭션 프록시 바깥에서 재시도해야 매번 새 트랜잭션이 열린다.
+ */
+@Slf4j
+public class LockRetryTransferService {
+
+    private final MemberServiceV4 memberService;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public LockRetryTransferService(MemberServiceV4 memberService, int maxAttempts, long backoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        this.memberService = memberService;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                memberService.accountTransferLocked(fromId, toId, money);
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.info("lock failure, retry attempt={}, ex={}", attempt, e.getClass().getSimpleName());
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(backoffMillis * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
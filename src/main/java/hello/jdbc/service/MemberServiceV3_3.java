@@ -26,6 +26,15 @@ public class MemberServiceV3_3 {
         bizLogic(fromId, toId, money);
     }
 
+    /**
+     * 계좌이체 로직 - 원자적 갱신
+     * 조회 없이 "money = money - ?" 두 번으로 처리하므로 lost update 가 생기지 않는다.
+     */
+    @Transactional
+    public void accountTransferAtomic(String fromId, String toId, int money) throws SQLException {
+        atomicBizLogic(fromId, toId, money);
+    }
+
     /**
      * 비즈니스 로직
      */
@@ -34,15 +43,32 @@ public class MemberServiceV3_3 {
         Member toMember = memberRepository.findById(toId);
 
         memberRepository.update(fromId, fromMember.getMoney() - money);
-        validation(toMember);
+        validation(toMember.getMemberId());
         memberRepository.update(toId, toMember.getMoney() + money);
     }
 
+    /**
+     * 비즈니스 로직 - 원자적 갱신, 변경된 행 수로 검증
+     */
+    private void atomicBizLogic(String fromId, String toId, int money) throws SQLException {
+        if (money <= 0) {
+            throw new IllegalArgumentException("이체 금액은 0보다 커야 함 money=" + money);
+        }
+
+        if (!memberRepository.withdraw(fromId, money)) {
+            throw new IllegalStateException("잔액 부족 또는 회원 없음 memberId=" + fromId);
+        }
+        validation(toId);
+        if (!memberRepository.deposit(toId, money)) {
+            throw new IllegalStateException("회원 없음 memberId=" + toId);
+        }
+    }
+
     /**
      * 테스트용 계좌이체 예외 구현
      */
-    private static void validation(Member toMember) {
-        if (toMember.getMemberId().equals("ex")) {
+    private static void validation(String toId) {
+        if (toId.equals("ex")) {
             throw new IllegalStateException("이체 중 예외 발생");
         }
     }
@@ -4,6 +4,7 @@ import hello.jdbc.domain.Member;
 import hello.jdbc.repository.MemberRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 /**
  * 예외 누수 문제 해결
@@ -28,6 +29,40 @@ public class MemberServiceV4 {
         bizLogic(fromId, toId, money);
     }
 
+    /**
+     * 계좌이체 로직 - 원자적 갱신
+     * 조회 없이 "money = money - ?" 두 번으로 처리하므로 lost update 가 생기지 않는다.
+     * 두 행을 memberId 오름차순으로 갱신하므로 A->B, B->A 가 동시에 실행돼도 데드락이 없다.
+     */
+    @Transactional
+    public void accountTransferAtomic(String fromId, String toId, int money) {
+        atomicBizLogic(fromId, toId, money);
+    }
+
+    /**
+     * 계좌이체 로직 - 비관적 락
+     * 두 회원 행을 memberId 순서대로 잠그므로 A->B, B->A 가 동시에 실행돼도 서로 반대 순서로 기다리는 일(데드락)이 없다.
+     * 락 획득 실패 재시도는 LockRetryTransferService 에서 트랜잭션 단위로 수행
+     */
+    @Transactional
+    public void accountTransferLocked(String fromId, String toId, int money) {
+        lockedBizLogic(fromId, toId, money);
+    }
+
+    /**
+     * 계좌이체 로직 - 낙관적 락
+     * 행 잠금(select for update) 없이 읽고, 읽은 버전일 때만 갱신한다.
+     * 그 사이 다른 트랜잭션이 바꿨으면 롤백하고 false (재시도는 OptimisticTransferService 에서 트랜잭션 단위로 수행)
+     */
+    @Transactional
+    public boolean accountTransferOptimistic(String fromId, String toId, int money) {
+        if (optimisticBizLogic(fromId, toId, money)) {
+            return true;
+        }
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        return false;
+    }
+
     /**
      * 비즈니스 로직
      */
@@ -36,15 +71,98 @@ public class MemberServiceV4 {
         Member toMember = memberRepository.findById(toId);
 
         memberRepository.update(fromId, fromMember.getMoney() - money);
-        validation(toMember);
+        validation(toMember.getMemberId());
         memberRepository.update(toId, toMember.getMoney() + money);
     }
 
+    /**
+     * 비즈니스 로직 - 정해진 순서(memberId 오름차순)로 행 잠금 후 갱신
+     */
+    private void lockedBizLogic(String fromId, String toId, int money) {
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("같은 회원에게 이체할 수 없음 memberId=" + fromId);
+        }
+
+        Member fromMember;
+        Member toMember;
+        if (fromId.compareTo(toId) < 0) {
+            fromMember = memberRepository.findByIdForUpdate(fromId);
+            toMember = memberRepository.findByIdForUpdate(toId);
+        } else {
+            toMember = memberRepository.findByIdForUpdate(toId);
+            fromMember = memberRepository.findByIdForUpdate(fromId);
+        }
+
+        memberRepository.update(fromId, fromMember.getMoney() - money);
+        validation(toMember.getMemberId());
+        memberRepository.update(toId, toMember.getMoney() + money);
+    }
+
+    /**
+     * 비즈니스 로직 - 버전 비교 갱신
+     * 갱신은 memberId 오름차순: 먼저 갱신한 행의 잠금을 서로 반대 순서로 기다리는 일(데드락)이 없다.
+     */
+    private boolean optimisticBizLogic(String fromId, String toId, int money) {
+        if (money <= 0) {
+            throw new IllegalArgumentException("이체 금액은 0보다 커야 함 money=" + money);
+        }
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("같은 회원에게 이체할 수 없음 memberId=" + fromId);
+        }
+
+        Member fromMember = memberRepository.findById(fromId);
+        Member toMember = memberRepository.findById(toId);
+        if (fromMember.getMoney() < money) {
+            throw new IllegalStateException("잔액 부족 memberId=" + fromId);
+        }
+
+        if (fromId.compareTo(toId) < 0) {
+            return updateIfVersion(fromMember, -money) && updateIfVersion(toMember, money);
+        }
+        return updateIfVersion(toMember, money) && updateIfVersion(fromMember, -money);
+    }
+
+    private boolean updateIfVersion(Member member, int delta) {
+        return memberRepository.updateIfVersion(member.getMemberId(), member.getMoney() + delta, member.getVersion());
+    }
+
+    /**
+     * 비즈니스 로직 - 원자적 갱신, 변경된 행 수로 검증
+     * 갱신은 memberId 오름차순 (행 잠금 순서를 고정)
+     */
+    private void atomicBizLogic(String fromId, String toId, int money) {
+        if (money <= 0) {
+            throw new IllegalArgumentException("이체 금액은 0보다 커야 함 money=" + money);
+        }
+
+        if (fromId.compareTo(toId) < 0) {
+            withdraw(fromId, money);
+            validation(toId);
+            deposit(toId, money);
+        } else {
+            deposit(toId, money);
+            validation(toId);
+            withdraw(fromId, money);
+        }
+    }
+
+    private void withdraw(String fromId, int money) {
+        if (!memberRepository.withdraw(fromId, money)) {
+            throw new IllegalStateException("잔액 부족 또는 회원 없음 memberId=" + fromId);
+        }
+    }
+
+    private void deposit(String toId, int money) {
+        if (!memberRepository.deposit(toId, money)) {
+            throw new IllegalStateException("회원 없음 memberId=" + toId);
+        }
+    }
+
     /**
      * 테스트용 계좌이체 예외 구현
      */
-    private static void validation(Member toMember) {
-        if (toMember.getMemberId().equals("ex")) {
+    private static void validation(String toId) {
+        if (toId.equals("ex")) {
             throw new IllegalStateException("이체 중 예외 발생");
         }
     }
@@ -0,0 +1,56 @@
+package hello.jdbc.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 낙관적 락 이체 + 재시도
+ * 충돌(읽은 뒤 다른 트랜잭션이 먼저 갱신)하면 트랜잭션 전체를 다시 실행한다.
+ * 경합이 낮으면 행 잠금을 기다리지 않으므로 비관적 락(LockRetryTransferService)보다 빠르고,
+ * 경합이 높으면 재시도가 늘어나므로 대기 시간을 지수적으로 늘리되 maxBackoffMillis 를 넘지 않는다.
+ *
+ * 대기 시간은 ExponentialBackoff (지수 증가 + full jitter)
+ */
+@Slf4j
+public class OptimisticTransferService {
+
+    private final MemberServiceV4 memberService;
+    private final int maxAttempts;
+    private final ExponentialBackoff backoff;
+
+    private final LongAdder conflicts = new LongAdder();
+
+    public OptimisticTransferService(MemberServiceV4 memberService, int maxAttempts,
+                                     long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        this.memberService = memberService;
+        this.maxAttempts = maxAttempts;
+        this.backoff = new ExponentialBackoff(baseBackoffMillis, maxBackoffMillis);
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        for (int attempt = 1; ; attempt++) {
+            if (memberService.accountTransferOptimistic(fromId, toId, money)) {
+                return;
+            }
+            conflicts.increment();
+            if (attempt >= maxAttempts) {
+                throw new OptimisticLockingFailureException(
+                        "transfer conflict after " + attempt + " attempts fromId=" + fromId + ", toId=" + toId);
+            }
+            log.debug("version conflict, retry attempt={}", attempt);
+            backoff.sleep(attempt);
+        }
+    }
+
+    /**
+     * 지금까지 충돌한 횟수 (재시도 + 최종 실패)
+     */
+    public long conflicts() {
+        return conflicts.sum();
+    }
+}
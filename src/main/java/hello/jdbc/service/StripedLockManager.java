@@ -0,0 +1,129 @@
+package hello.jdbc.service;
+
+import lombok.Value;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * memberId 해시 기반 줄무늬(striped) 락
+ * 고정 개수의 ReentrantLock 중 memberId 가 속한 락을 잡는다. 회원 수와 상관없이 메모리가 일정하고,
+ * 서로 다른 회원이 같은 줄무늬에 걸리면 불필요하게 기다릴 뿐 정확성에는 문제가 없다.
+ *
+ * 두 회원을 잠글 때는 항상 줄무늬 번호 오름차순: A->B, B->A 가 동시에 와도 데드락이 없다.
+ * 트랜잭션(커넥션)을 열기 전에 잡아서, 인기 회원에 몰린 이체가 커넥션을 붙잡은 채 DB 행 잠금을 기다리지 않게 한다.
+ *
+ * synchronized 대신 ReentrantLock: 타임아웃, 공정성(fair) 선택, 가상 스레드 pinning 없음
+ */
+public class StripedLockManager {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * stripes: 줄무늬 수, 2의 거듭제곱으로 올림
+     * fair: true 면 오래 기다린 스레드부터 (처리량은 줄지만 기아 없음)
+     */
+    public StripedLockManager(int stripes, boolean fair) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock(fair);
+        }
+        this.mask = size - 1;
+    }
+
+    public int stripes() {
+        return locks.length;
+    }
+
+    int stripeOf(String memberId) {
+        int h = memberId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * 두 회원의 줄무늬를 오름차순으로 잠금, timeoutMillis 안에 못 잡으면 CannotAcquireLockException
+     * 반환된 Locked 를 닫으면(finally 에서 close) 해제
+     */
+    public Locked lock(String firstId, String secondId, long timeoutMillis) {
+        int a = stripeOf(firstId);
+        int b = stripeOf(secondId);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        ReentrantLock first = locks[Math.min(a, b)];
+        ReentrantLock second = a == b ? null : locks[Math.max(a, b)];
+        acquire(first, deadline);
+        if (second != null) {
+            try {
+                acquire(second, deadline);
+            } catch (RuntimeException e) {
+                first.unlock();
+                throw e;
+            }
+        }
+        return new Locked(first, second);
+    }
+
+    public Stats stats() {
+        return new Stats(acquisitions.sum(), contended.sum(), timeouts.sum());
+    }
+
+    private void acquire(ReentrantLock lock, long deadline) {
+        acquisitions.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+        contended.increment();
+        try {
+            if (lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("interrupted while waiting for member lock", e);
+        }
+        timeouts.increment();
+        throw new CannotAcquireLockException("member lock timeout");
+    }
+
+    /**
+     * 잡은 줄무늬 락, 잡은 반대 순서로 해제
+     */
+    public static final class Locked implements AutoCloseable {
+        private final ReentrantLock first;
+        private final ReentrantLock second;
+
+        private Locked(ReentrantLock first, ReentrantLock second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void close() {
+            if (second != null) {
+                second.unlock();
+            }
+            first.unlock();
+        }
+    }
+
+    /**
+     * acquisitions: 줄무늬 락 획득 시도 수, contended: 바로 못 잡고 기다린 수, timeouts: 시간 안에 못 잡은 수
+     */
+    @Value
+    public static class Stats {
+        long acquisitions;
+        long contended;
+        long timeouts;
+    }
+}
@@ -0,0 +1,34 @@
+package hello.jdbc.service;
+
+/**
+ * 줄무늬 락 이체
+ * 같은 JVM 안의 이체는 트랜잭션을 열기 전에 StripedLockManager 에서 줄을 서므로
+ * 인기 회원에 몰린 이체가 커넥션을 붙잡고 DB 행 잠금을 기다리지 않는다. (기다리는 동안 커넥션은 다른 이체가 씀)
+ *
+ * 다른 JVM(다른 서버) 과의 동시성은 여전히 DB 행 잠금(accountTransferLocked)이 지킨다.
+ * memberService 는 트랜잭션 프록시여야 한다. (락 안에서 트랜잭션이 시작되고 커밋까지 끝나야 함)
+ */
+public class StripedLockTransferService {
+
+    private final MemberServiceV4 memberService;
+    private final StripedLockManager lockManager;
+    private final long lockTimeoutMillis;
+
+    public StripedLockTransferService(MemberServiceV4 memberService, StripedLockManager lockManager, long lockTimeoutMillis) {
+        this.memberService = memberService;
+        this.lockManager = lockManager;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    /**
+     * 락 획득 시간 초과 시 CannotAcquireLockException (커넥션을 얻기 전이므로 DB 작업은 없음)
+     */
+    public void accountTransfer(String fromId, String toId, int money) {
+        StripedLockManager.Locked locked = lockManager.lock(fromId, toId, lockTimeoutMillis);
+        try {
+            memberService.accountTransferLocked(fromId, toId, money);
+        } finally {
+            locked.close();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package hello.jdbc.service;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+/**
+ * 스프링 컨테이너 없이 @Transactional 적용 (테스트, 벤치마크용)
+ * outerAdvice 는 트랜잭션 인터셉터 바깥에 적용된다. (예: TransientRetryInterceptor - 재시도마다 새 트랜잭션)
+ *
+ * MemberServiceV4 memberService = TransactionalProxy.create(new MemberServiceV4(memberRepository), transactionManager);
+ */
+public abstract class TransactionalProxy {
+
+    public static <T> T create(T target, TransactionManager transactionManager, Advice... outerAdvice) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        for (Advice advice : outerAdvice) {
+            proxyFactory.addAdvice(advice);
+        }
+        proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        @SuppressWarnings("unchecked")
+        T proxy = (T) proxyFactory.getProxy();
+        return proxy;
+    }
+}
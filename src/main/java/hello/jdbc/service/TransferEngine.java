@@ -0,0 +1,246 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Transfer;
+import hello.jdbc.domain.TransferResult;
+import hello.jdbc.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 그룹 커밋 이체 엔진
+ * 이체 요청을 큐에 모았다가 maxBatchSize 건이 차거나 maxDelay 가 지나면 한 트랜잭션으로 처리한다.
+ * 커넥션 획득, 커밋(fsync)을 여러 이체가 나눠 쓰고, 차감/증가는 각각 JDBC 배치 한 번으로 보낸다.
+ *
+ * 배치 안에서 검증에 실패한 이체(잔액 부족, 회원 없음)가 있으면 배치를 롤백하고,
+ * 실패한 이체를 빼고 나머지를 다시 실행한 뒤 실패한 이체는 단독 트랜잭션으로 한 번 더 시도한다.
+ * (배치에서는 모든 차감이 증가보다 먼저 실행되므로 A->B, B->C 처럼 앞 이체의 입금에 기대는 이체는 단독 실행에서 성공할 수 있다)
+ *
+ * 작업 스레드는 데몬 스레드이므로 close() 하지 않으면 JVM 종료 시 큐에 남은 요청은 처리되지 않는다.
+ * 작업 스레드가 인터럽트되면 처리 중인 배치와 큐에 남은 요청을 모두 예외로 완료하고 종료한다.
+ */
+@Slf4j
+public class TransferEngine implements AutoCloseable {
+
+    private final TransactionTemplate txTemplate;
+    private final MemberRepository memberRepository;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Thread worker;
+    /**
+     * running 변경과 큐에 넣기를 함께 잠금: close 이후에 큐에 들어가 완료되지 않는 요청이 없도록
+     */
+    private final Object stateLock = new Object();
+    private volatile boolean running = true;
+
+    public TransferEngine(PlatformTransactionManager transactionManager, MemberRepository memberRepository,
+                          int maxBatchSize, long maxDelayMillis, int queueCapacity) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.memberRepository = memberRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.worker = new Thread(this::drainLoop, "transfer-engine");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 이체 요청 - 배치가 커밋되면 결과로 완료된다.
+     * 검증 실패는 실패 결과로, DB 오류는 예외로 완료
+     */
+    public CompletableFuture<TransferResult> submit(String fromId, String toId, int money) {
+        Transfer transfer = new Transfer(fromId, toId, money);
+        CompletableFuture<TransferResult> future = new CompletableFuture<>();
+
+        String invalid = validate(transfer);
+        if (invalid != null) {
+            future.complete(TransferResult.failure(transfer, invalid));
+            return future;
+        }
+        boolean accepted;
+        synchronized (stateLock) {
+            accepted = running && queue.offer(new Pending(transfer, future));
+        }
+        if (!accepted) {
+            future.completeExceptionally(new RejectedExecutionException("transfer engine queue full or closed"));
+        }
+        return future;
+    }
+
+    /**
+     * 새 요청을 받지 않고 큐에 남은 요청까지 처리한 뒤 종료
+     */
+    @Override
+    public void close() {
+        stop();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stop() {
+        synchronized (stateLock) {
+            running = false;
+        }
+    }
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();
+                RejectedExecutionException stopped = new RejectedExecutionException("transfer engine interrupted");
+                failAll(batch, stopped);
+                List<Pending> queued = new ArrayList<>();
+                queue.drainTo(queued);
+                failAll(queued, stopped);
+                return;
+            } catch (RuntimeException e) {
+                log.error("transfer engine error", e);
+                failAll(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void failAll(List<Pending> pendings, Throwable e) {
+        for (Pending pending : pendings) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 첫 요청 이후 maxDelay 동안 maxBatchSize 까지 모음
+     */
+    private void collect(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void process(List<Pending> batch) {
+        List<Pending> remaining = new ArrayList<>(batch);
+        List<Pending> isolated = new ArrayList<>();
+
+        while (!remaining.isEmpty()) {
+            List<Pending> failed;
+            try {
+                failed = applyInTransaction(remaining);
+            } catch (RuntimeException e) {
+                if (remaining.size() == 1) {
+                    remaining.get(0).future.completeExceptionally(e);
+                    return;
+                }
+                // DB 오류: 원인이 된 이체를 찾기 위해 모두 단독 실행
+                log.warn("batch failed, isolate transfers size={}", remaining.size(), e);
+                isolated.addAll(remaining);
+                break;
+            }
+
+            if (failed.isEmpty()) {
+                for (Pending pending : remaining) {
+                    pending.future.complete(TransferResult.success(pending.transfer));
+                }
+                break;
+            }
+            if (remaining.size() == 1) {
+                Pending pending = remaining.get(0);
+                pending.future.complete(TransferResult.failure(pending.transfer, "잔액 부족 또는 회원 없음"));
+                break;
+            }
+            remaining.removeAll(failed);
+            isolated.addAll(failed);
+        }
+
+        for (Pending pending : isolated) {
+            process(List.of(pending));
+        }
+    }
+
+    /**
+     * 한 트랜잭션으로 차감 배치, 증가 배치 실행
+     * 변경된 행이 없는 이체가 있으면 롤백하고 그 이체들을 반환
+     */
+    private List<Pending> applyInTransaction(List<Pending> batch) {
+        List<Transfer> transfers = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            transfers.add(pending.transfer);
+        }
+
+        return txTemplate.execute(status -> {
+            List<Pending> failed = failedOf(batch, memberRepository.withdrawAll(transfers));
+            if (failed.isEmpty()) {
+                failed = failedOf(batch, memberRepository.depositAll(transfers));
+            }
+            if (!failed.isEmpty()) {
+                status.setRollbackOnly();
+            }
+            return failed;
+        });
+    }
+
+    private static List<Pending> failedOf(List<Pending> batch, int[] rowCounts) {
+        List<Pending> failed = new ArrayList<>();
+        for (int i = 0; i < rowCounts.length; i++) {
+            if (rowCounts[i] != 1) {
+                failed.add(batch.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private static String validate(Transfer transfer) {
+        if (transfer.getMoney() <= 0) {
+            return "이체 금액은 0보다 커야 함";
+        }
+        if (transfer.getFromId().equals(transfer.getToId())) {
+            return "같은 회원에게 이체할 수 없음";
+        }
+        return null;
+    }
+
+    private static class Pending {
+        final Transfer transfer;
+        final CompletableFuture<TransferResult> future;
+
+        Pending(Transfer transfer, CompletableFuture<TransferResult> future) {
+            this.transfer = transfer;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package hello.jdbc.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 이체 처리용 ExecutorService
+ * 가상 스레드는 Java 21 부터 있으므로 리플렉션으로 생성한다. (Java 11 빌드에서도 컴파일되고, 21 에서 실행하면 사용 가능)
+ */
+public abstract class TransferExecutors {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactoryMethod();
+
+    /**
+     * 플랫폼 스레드 고정 크기 풀
+     */
+    public static ExecutorService platform(int threads) {
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "transfer-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /**
+     * 작업마다 가상 스레드 하나 (Executors.newVirtualThreadPerTaskExecutor)
+     * JDBC 대기 중에는 캐리어 스레드를 놓아주므로 동시에 처리 중인 이체 수가 스레드 수에 묶이지 않는다.
+     */
+    public static ExecutorService virtual() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException(
+                    "virtual threads require Java 21+, current=" + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("virtual thread executor creation failed", e);
+        }
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Transfer;
+import hello.jdbc.domain.TransferResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 이체 스트림 처리 단계 (java.util.concurrent.Flow)
+ * 위에서 받은 Transfer 를 MemberServiceV4.accountTransferAtomic 으로 처리하고 TransferResult 를 아래로 보낸다.
+ *
+ * - 동시성 제한: 처리 중인 이체가 maxConcurrency 개를 넘지 않도록 처음에 request(maxConcurrency),
+ *   이후 하나 끝날 때마다 request(1) -> 위쪽은 처리 속도 이상으로 보내지 않는다.
+ *   아래쪽 구독자가 느리면 submit 이 막히고, 완료가 늦어져 위쪽 요청도 늦어진다.
+ * - 회원별 순서: 같은 회원(출금 또는 입금)이 들어간 이체는 받은 순서대로 실행되고 결과도 그 순서로 나간다.
+ *   서로 다른 회원끼리의 이체는 병렬로 처리된다.
+ *
+ * executor 크기는 커넥션 풀 크기에 맞춘다. 처리량은 호출 스레드 수가 아니라 커넥션 수를 따른다.
+ */
+@Slf4j
+public class TransferProcessor extends SubmissionPublisher<TransferResult>
+        implements Flow.Processor<Transfer, TransferResult> {
+
+    private final MemberServiceV4 memberService;
+    private final Executor executor;
+    private final int maxConcurrency;
+
+    /**
+     * 회원별 마지막 이체의 완료 시점, 다음 이체는 이것이 끝난 뒤 실행
+     */
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+
+    public TransferProcessor(MemberServiceV4 memberService, Executor executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.memberService = memberService;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(maxConcurrency);
+    }
+
+    /**
+     * Flow 규약상 onNext 는 순서대로 한 번에 하나씩 호출된다.
+     */
+    @Override
+    public void onNext(Transfer transfer) {
+        inFlight.incrementAndGet();
+        CompletableFuture<Void> fromTail = tails.getOrDefault(transfer.getFromId(), CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> toTail = tails.getOrDefault(transfer.getToId(), CompletableFuture.completedFuture(null));
+
+        CompletableFuture<Void> done = CompletableFuture.allOf(fromTail, toTail)
+                .thenRunAsync(() -> submit(apply(transfer)), executor);
+        tails.put(transfer.getFromId(), done);
+        tails.put(transfer.getToId(), done);
+
+        done.whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("transfer stage failed transfer={}", transfer, e);
+            }
+            tails.remove(transfer.getFromId(), done);
+            tails.remove(transfer.getToId(), done);
+            if (inFlight.decrementAndGet() == 0 && upstreamDone) {
+                finish();
+            } else if (!upstreamDone) {
+                subscription.request(1);
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        upstreamError = throwable;
+        onComplete();
+    }
+
+    /**
+     * 처리 중인 이체를 모두 내보낸 뒤 아래쪽도 완료
+     */
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        if (inFlight.get() == 0) {
+            finish();
+        }
+    }
+
+    private synchronized void finish() {
+        if (isClosed()) {
+            return;
+        }
+        if (upstreamError != null) {
+            closeExceptionally(upstreamError);
+        } else {
+            close();
+        }
+    }
+
+    /**
+     * 실패도 결과로 내보내서 스트림이 끊기지 않게 함
+     */
+    private TransferResult apply(Transfer transfer) {
+        try {
+            memberService.accountTransferAtomic(transfer.getFromId(), transfer.getToId(), transfer.getMoney());
+            return TransferResult.success(transfer);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return TransferResult.failure(transfer, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("transfer failed transfer={}", transfer, e);
+            return TransferResult.failure(transfer, e.toString());
+        }
+    }
+}
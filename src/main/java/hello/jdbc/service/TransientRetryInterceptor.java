@@ -0,0 +1,132 @@
+package hello.jdbc.service;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 일시적 DB 예외 재시도 인터셉터
+ * MemberRepositoryV4_2 / V5 의 예외 변환기가 만든 TransientDataAccessException
+ * (데드락 DeadlockLoserDataAccessException, 락 획득 실패 CannotAcquireLockException, 낙관적 락 충돌 등)이면 메서드를 다시 호출한다.
+ *
+ * 트랜잭션 인터셉터 바깥에 두어야 재시도마다 새 트랜잭션이 열린다. (이미 트랜잭션 안에서 호출되면 재시도하지 않음)
+ * MemberServiceV4 memberService = TransactionalProxy.create(new MemberServiceV4(memberRepository), transactionManager, retryInterceptor);
+ *
+ * - 대기 시간: ExponentialBackoff (OptimisticTransferService 와 같은 지수 증가 + full jitter)
+ * - 재시도 예산: windowMillis 동안 retriesPerWindow 번까지만 재시도, 넘으면 바로 예외
+ *   (DB 장애로 모든 호출이 실패할 때 재시도가 부하를 몇 배로 키우지 않도록)
+ */
+@Slf4j
+public class TransientRetryInterceptor implements MethodInterceptor {
+
+    private final int maxAttempts;
+    private final ExponentialBackoff backoff;
+    private final int retriesPerWindow;
+    private final long windowMillis;
+
+    private long windowStart;
+    private int windowRetries;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder retriedSuccesses = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    public TransientRetryInterceptor(int maxAttempts, long baseBackoffMillis, long maxBackoffMillis,
+                                     int retriesPerWindow, long windowMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+        }
+        this.maxAttempts = maxAttempts;
+        this.backoff = new ExponentialBackoff(baseBackoffMillis, maxBackoffMillis);
+        this.retriesPerWindow = retriesPerWindow;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        calls.increment();
+        boolean retryable = !TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                Object result = proceed(invocation);
+                successes.increment();
+                if (attempt > 1) {
+                    retriedSuccesses.increment();
+                }
+                return result;
+            } catch (TransientDataAccessException e) {
+                if (!retryable || attempt >= maxAttempts) {
+                    throw e;
+                }
+                if (!acquireRetry()) {
+                    budgetExhausted.increment();
+                    throw e;
+                }
+                log.debug("transient failure, retry method={}, attempt={}, ex={}",
+                        invocation.getMethod().getName(), attempt, e.getClass().getSimpleName());
+                backoff.sleep(attempt);
+            }
+        }
+    }
+
+    /**
+     * 시도마다 아직 proceed() 하지 않은 원본 invocation 의 복제본으로 실행
+     * proceed() 한 invocation 은 뒤쪽 인터셉터(트랜잭션 등)를 이미 지나간 상태라, 다시 부르거나 복제하면 대상 메서드만 호출된다.
+     */
+    private static Object proceed(MethodInvocation invocation) throws Throwable {
+        if (!(invocation instanceof ProxyMethodInvocation)) {
+            throw new IllegalStateException("retry requires a ProxyMethodInvocation: " + invocation.getClass().getName());
+        }
+        return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+    }
+
+    public Stats stats() {
+        return new Stats(calls.sum(), attempts.sum(), successes.sum(), retriedSuccesses.sum(), budgetExhausted.sum());
+    }
+
+    /**
+     * 이번 구간 예산에서 재시도 한 번 차감, 남은 예산이 없으면 false
+     */
+    private synchronized boolean acquireRetry() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= windowMillis) {
+            windowStart = now;
+            windowRetries = 0;
+        }
+        if (windowRetries >= retriesPerWindow) {
+            return false;
+        }
+        windowRetries++;
+        return true;
+    }
+
+    /**
+     * calls: 인터셉터 호출 수, attempts: 대상 메서드 실행 수 (재시도 포함)
+     * successes: 성공한 호출 수, retriedSuccesses: 그중 재시도 끝에 성공한 수
+     * budgetExhausted: 재시도 예산이 없어 바로 실패한 수
+     */
+    @Value
+    public static class Stats {
+        long calls;
+        long attempts;
+        long successes;
+        long retriedSuccesses;
+        long budgetExhausted;
+
+        public long retries() {
+            return attempts - calls;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+create table if not exists member (
+    member_id varchar(10),
+    money integer not null default 0,
+    primary key (member_id)
+);
+
+-- 낙관적 락 버전 (기존 테이블에도 추가)
+alter table member add column if not exists version bigint not null default 0;
+
+-- 인기 회원 잔액 분할 (ShardedMemberRepository): 회원 잔액 = member.money + 분할 행 money 합
+create table if not exists member_shard (
+    member_id varchar(10),
+    shard integer,
+    money integer not null default 0,
+    version bigint not null default 0,
+    primary key (member_id, shard)
+);
+
+-- 이체 원장 (LedgerMemberRepository): 회원 잔액 = member.money(스냅샷) + 아직 스냅샷에 반영되지 않은 원장 합
+create table if not exists ledger (
+    entry_id bigint auto_increment,
+    tx_id varchar(36) not null,
+    from_id varchar(10),
+    to_id varchar(10),
+    amount integer not null,
+    compacted boolean not null default false,
+    created_at timestamp not null default current_timestamp,
+    primary key (entry_id)
+);
+create index if not exists ledger_to_idx on ledger (to_id, compacted);
+create index if not exists ledger_from_idx on ledger (from_id, compacted);
+create index if not exists ledger_compacted_idx on ledger (compacted, entry_id);
+
+-- 이체 중복 방지 (IdempotentTransferService): 같은 idempotency_key 로 다시 요청하면 처음 결과를 돌려준다
+create table if not exists transfer_receipt (
+    idempotency_key varchar(64),
+    from_id varchar(10) not null,
+    to_id varchar(10) not null,
+    amount integer not null,
+    created_at timestamp not null default current_timestamp,
+    primary key (idempotency_key)
+);
@@ -0,0 +1,57 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourceFactoryTest {
+
+    @Test
+    void prewarm() {
+        try (HikariDataSource dataSource = DataSourceFactory.pooledDataSource("PrewarmPool", 5, 3, true)) {
+            // 첫 요청 전에 이미 minimumIdle 개가 열려 있음
+            assertThat(dataSource.getHikariPoolMXBean().getTotalConnections()).isGreaterThanOrEqualTo(3);
+            assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isZero();
+        }
+    }
+
+    @Test
+    void borrowValidationReplacesKilledConnection() throws Exception {
+        try (HikariDataSource dataSource = DataSourceFactory.pooledDataSource("ValidationPool", 1, 1, false)) {
+            int sessionId;
+            try (Connection con = dataSource.getConnection()) {
+                sessionId = sessionId(con);
+            }
+            // 서버에서 풀 안의 커넥션을 끊고, 대여 시 검증 대상이 되도록 500ms 이상 놀림
+            try (Connection admin = DBConeectionUtil.getConnection();
+                 Statement stmt = admin.createStatement()) {
+                stmt.execute("call abort_session(" + sessionId + ")");
+            }
+            Thread.sleep(600);
+
+            try (Connection con = dataSource.getConnection()) {
+                assertThat(sessionId(con)).isNotEqualTo(sessionId);
+            }
+        }
+    }
+
+    private static int sessionId(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery("call session_id()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void pooledConnection() throws SQLException {
+        try (Connection con = DBConeectionUtil.getPooledConnection()) {
+            assertThat(con).isNotNull();
+        }
+    }
+}
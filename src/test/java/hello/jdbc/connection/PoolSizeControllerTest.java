@@ -0,0 +1,81 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.metrics.LatencyHistogram;
+import hello.jdbc.metrics.PoolMonitor;
+import hello.jdbc.metrics.PoolSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PoolSizeControllerTest {
+
+    private HikariDataSource pool;
+    private PoolSizeController controller;
+
+    @BeforeEach
+    void before() {
+        pool = DataSourceFactory.pooledDataSource("ControllerPool", 4, 1, false);
+        controller = new PoolSizeController(pool, new PoolMonitor(pool, 0), null, 2, 16, 5);
+    }
+
+    @AfterEach
+    void after() {
+        controller.close();
+        pool.close();
+    }
+
+    @Test
+    void growAfterConsecutiveWaits() {
+        PoolSnapshot waiting = snapshot(4, 8, 20);
+
+        // 한 번은 무시 (히스테리시스)
+        assertThat(controller.decide(waiting, 4, 0)).isEqualTo(4);
+        assertThat(controller.decide(waiting, 4, 0)).isEqualTo(5);
+    }
+
+    @Test
+    void growStopsAtMaxSize() {
+        PoolSnapshot waiting = snapshot(16, 8, 20);
+        controller.decide(waiting, 16, 0);
+        assertThat(controller.decide(waiting, 16, 0)).isEqualTo(16);
+    }
+
+    @Test
+    void shrinkWhenIdle() {
+        PoolSnapshot idle = snapshot(1, 0, 0);
+        int size = 4;
+        for (int i = 1; i < PoolSizeController.SHRINK_AFTER; i++) {
+            assertThat(controller.decide(idle, size, 0)).isEqualTo(size);
+        }
+        assertThat(controller.decide(idle, size, 0)).isEqualTo(3);
+    }
+
+    @Test
+    void noGrowWhenDatabaseSaturated() {
+        PoolSnapshot waiting = snapshot(4, 8, 20);
+        controller.decide(waiting, 4, TimeUnit.MILLISECONDS.toNanos(1));
+
+        // SQL 실행 시간이 기준치의 2배를 넘으면 대기가 있어도 늘리지 않음
+        long saturated = TimeUnit.MILLISECONDS.toNanos(5);
+        for (int i = 0; i < 10; i++) {
+            assertThat(controller.decide(waiting, 4, saturated)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void adjustAppliesToPool() {
+        assertThat(controller.adjust()).isEqualTo(4);
+        assertThat(pool.getMaximumPoolSize()).isEqualTo(4);
+    }
+
+    private static PoolSnapshot snapshot(int active, int pending, long acquireP95Millis) {
+        long p95 = TimeUnit.MILLISECONDS.toNanos(acquireP95Millis);
+        LatencyHistogram.Snapshot acquire = new LatencyHistogram.Snapshot(100, p95 / 2, p95 / 2, p95, p95, p95);
+        return new PoolSnapshot("ControllerPool", 0, active, 0, active, pending, 4, acquire, acquire, 0, 0);
+    }
+}
@@ -0,0 +1,73 @@
+package hello.jdbc.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.MemberRepositoryV5;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class MetricsDataSourceTest {
+
+    private HikariDataSource dataSource;
+    private StatementMetrics metrics;
+
+    @BeforeEach
+    void before() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        // 0ms: 모든 SQL 을 slow query 로 남김
+        metrics = new StatementMetrics(0);
+    }
+
+    @AfterEach
+    void after() {
+        dataSource.close();
+    }
+
+    @Test
+    void recordPerSqlShape() {
+        MemberRepository repository = new MemberRepositoryV4_2(new MetricsDataSource(dataSource, metrics));
+        crud(repository);
+
+        StatementMetrics.MetricsSnapshot snapshot = metrics.snapshot();
+        log.info("snapshot={}", snapshot);
+
+        Map<String, StatementMetrics.StatementSnapshot> statements = snapshot.getStatements();
+        assertThat(statements.get("insert into member(member_id, money) values (?, ?)").getRowsAffected()).isEqualTo(1);
+        assertThat(statements.get("update member set money=?, version=version+1 where member_id=?").getLatency().getCount()).isEqualTo(1);
+        assertThat(statements.get("select member_id, money, version from member where member_id = ?").getLatency().getCount()).isEqualTo(1);
+        // SQLErrorCodeSQLExceptionTranslator 가 생성 시 메타데이터 조회용 커넥션을 한 번 더 사용
+        assertThat(snapshot.getConnectionAcquire().getCount()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void jdbcTemplateAndInList() {
+        MemberRepository repository = new MemberRepositoryV5(new MetricsDataSource(dataSource, metrics));
+        crud(repository);
+        repository.findAllByIds(List.of("metricA", "metricB"));
+
+        Map<String, StatementMetrics.StatementSnapshot> statements = metrics.snapshot().getStatements();
+        assertThat(statements).containsKey("select member_id, money, version from member where member_id in (?...)");
+        assertThat(statements.get("delete from member where member_id=?").getRowsAffected()).isEqualTo(1);
+    }
+
+    private static void crud(MemberRepository repository) {
+        repository.save(new Member("metricA", 10000));
+        repository.findById("metricA");
+        repository.update("metricA", 20000);
+        repository.delete("metricA");
+    }
+}
@@ -0,0 +1,70 @@
+package hello.jdbc.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.connection.DataSourceFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class PoolMonitorTest {
+
+    private HikariDataSource pool;
+    private PoolMonitor monitor;
+
+    @BeforeEach
+    void before() {
+        pool = DataSourceFactory.pooledDataSource("MonitorPool", 4, 2, true);
+        monitor = new PoolMonitor(pool, 100);
+    }
+
+    @AfterEach
+    void after() {
+        monitor.close();
+        pool.close();
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void sample() throws SQLException {
+        try (Connection con1 = monitor.dataSource().getConnection();
+             Connection con2 = monitor.dataSource().getConnection()) {
+            PoolSnapshot snapshot = monitor.sample();
+            log.info("snapshot={}", snapshot);
+
+            assertThat(snapshot.getActive()).isEqualTo(2);
+            assertThat(snapshot.getMaximumPoolSize()).isEqualTo(4);
+            assertThat(snapshot.getAcquire().getCount()).isEqualTo(2);
+            assertThat(snapshot.utilization()).isEqualTo(0.5);
+            assertThat(PoolRegistry.latest("MonitorPool")).contains(snapshot);
+        }
+
+        // 구간 지표는 샘플마다 0 부터
+        PoolSnapshot next = monitor.sample();
+        assertThat(next.getActive()).isZero();
+        assertThat(next.getRecentAcquire().getCount()).isZero();
+        assertThat(next.getAcquire().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void detectLeak() throws Exception {
+        Connection leaked = monitor.dataSource().getConnection();
+        Thread.sleep(150);
+
+        PoolSnapshot snapshot = monitor.sample();
+        assertThat(snapshot.getLeaked()).isEqualTo(1);
+        assertThat(snapshot.getLeaksDetected()).isEqualTo(1);
+
+        // 같은 커넥션은 한 번만 감지
+        assertThat(monitor.sample().getLeaksDetected()).isEqualTo(1);
+
+        leaked.close();
+        assertThat(monitor.sample().getLeaked()).isZero();
+    }
+}
@@ -0,0 +1,103 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncMemberRepositoryTest {
+
+    public static final String MEMBER_A = "asyncA";
+    public static final String MEMBER_B = "asyncB";
+
+    private HikariDataSource dataSource;
+    private MemberRepository memberRepository;
+    private AsyncMemberRepository asyncRepository;
+
+    @BeforeEach
+    void before() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(1);
+
+        memberRepository = new MemberRepositoryV5(dataSource);
+        asyncRepository = new AsyncMemberRepository(memberRepository, 1, 1, 5000);
+    }
+
+    @AfterEach
+    void after() {
+        asyncRepository.close();
+        memberRepository.deleteAll(List.of(MEMBER_A, MEMBER_B));
+        dataSource.close();
+    }
+
+    @Test
+    void crud() throws Exception {
+        asyncRepository.saveAsync(new Member(MEMBER_A, 10000)).get(5, TimeUnit.SECONDS);
+        asyncRepository.saveAsync(new Member(MEMBER_B, 20000)).get(5, TimeUnit.SECONDS);
+
+        Member findMember = asyncRepository.findByIdAsync(MEMBER_A).get(5, TimeUnit.SECONDS);
+        assertThat(findMember.getMoney()).isEqualTo(10000);
+
+        asyncRepository.updateAsync(MEMBER_A, 15000).get(5, TimeUnit.SECONDS);
+        Map<String, Member> members = asyncRepository.findAllByIdsAsync(List.of(MEMBER_A, MEMBER_B))
+                .get(5, TimeUnit.SECONDS);
+        assertThat(members.get(MEMBER_A).getMoney()).isEqualTo(15000);
+        assertThat(members.get(MEMBER_B).getMoney()).isEqualTo(20000);
+
+        asyncRepository.deleteAsync(MEMBER_A).get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> asyncRepository.findByIdAsync(MEMBER_A).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void rejectWhenQueueFull() throws Exception {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+
+        CompletableFuture<Member> running;
+        CompletableFuture<Member> queued;
+        CompletableFuture<Member> rejected;
+        // 하나뿐인 커넥션을 잡고 있어서 JDBC 스레드가 커넥션을 기다림
+        try (Connection held = dataSource.getConnection()) {
+            running = asyncRepository.findByIdAsync(MEMBER_A);
+            Thread.sleep(100);
+            queued = asyncRepository.findByIdAsync(MEMBER_A);
+            rejected = asyncRepository.findByIdAsync(MEMBER_A);
+
+            assertThat(asyncRepository.queued()).isEqualTo(1);
+            assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        }
+
+        assertThat(running.get(5, TimeUnit.SECONDS).getMoney()).isEqualTo(10000);
+        assertThat(queued.get(5, TimeUnit.SECONDS).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void timeout() throws Exception {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+
+        try (Connection held = dataSource.getConnection()) {
+            CompletableFuture<Member> future = asyncRepository.findByIdAsync(MEMBER_A, 100);
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(TimeoutException.class);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class CachingMemberRepositoryTest {
+
+    public static final String MEMBER_A = "cacheA";
+    public static final String MEMBER_B = "cacheB";
+    public static final String MEMBER_C = "cacheC";
+
+    private HikariDataSource dataSource;
+    private CachingMemberRepository repository;
+    private TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+
+        repository = new CachingMemberRepository(new MemberRepositoryV5(dataSource), 2);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        repository.save(new Member(MEMBER_A, 10000));
+        repository.save(new Member(MEMBER_B, 10000));
+        repository.save(new Member(MEMBER_C, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        repository.deleteAll(List.of(MEMBER_A, MEMBER_B, MEMBER_C));
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("두 번째 조회부터 캐시, 수정하면 무효화")
+    void readThroughAndInvalidate() {
+        repository.findById(MEMBER_A);
+        repository.findById(MEMBER_A);
+        assertThat(repository.stats().getHits()).isEqualTo(1);
+        assertThat(repository.stats().getMisses()).isEqualTo(1);
+
+        repository.update(MEMBER_A, 20000);
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(20000);
+        assertThat(repository.stats().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("캐시에서 꺼낸 객체를 수정해도 캐시는 그대로")
+    void defensiveCopy() {
+        repository.findById(MEMBER_A).setMoney(0);
+        repository.findById(MEMBER_A).setMoney(0);
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("최대 크기를 넘으면 가장 오래 사용하지 않은 회원 제거")
+    void evictLeastRecentlyUsed() {
+        // 무효화 표시를 밀어내기 위해 먼저 채움
+        repository.findById(MEMBER_A);
+        repository.findById(MEMBER_B);
+        repository.findById(MEMBER_A);
+        repository.findById(MEMBER_C);   // B 제거
+
+        long misses = repository.stats().getMisses();
+        repository.findById(MEMBER_A);
+        assertThat(repository.stats().getMisses()).isEqualTo(misses);
+        repository.findById(MEMBER_B);
+        assertThat(repository.stats().getMisses()).isEqualTo(misses + 1);
+        assertThat(repository.stats().getEvictions()).isPositive();
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서 읽은 값은 롤백되면 캐시에 올리지 않음")
+    void rollbackDoesNotPublish() {
+        txTemplate.executeWithoutResult(status -> {
+            repository.withdraw(MEMBER_A, 5000);
+            assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(5000);
+            status.setRollbackOnly();
+        });
+
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서 읽은 값은 커밋 후 캐시에 올림")
+    void commitPublishes() {
+        txTemplate.executeWithoutResult(status -> repository.findById(MEMBER_A));
+        long misses = repository.stats().getMisses();
+
+        repository.findById(MEMBER_A);
+        assertThat(repository.stats().getMisses()).isEqualTo(misses);
+    }
+}
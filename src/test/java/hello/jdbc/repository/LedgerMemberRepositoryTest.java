@@ -0,0 +1,235 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LedgerMemberRepositoryTest {
+
+    static final String MEMBER_A = "ledgerA";
+    static final String MEMBER_B = "ledgerB";
+    static final String MEMBER_C = "ledgerC";
+
+    static HikariDataSource dataSource;
+    LedgerMemberRepository repository;
+    LedgerCompactor compactor;
+
+    @BeforeAll
+    static void beforeAll() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        dataSource.close();
+    }
+
+    @BeforeEach
+    void before() {
+        repository = new LedgerMemberRepository(new MemberRepositoryV4_2(dataSource), dataSource);
+        compactor = new LedgerCompactor(dataSource, 100);
+        repository.save(new Member(MEMBER_A, 10000));
+        repository.save(new Member(MEMBER_B, 0));
+    }
+
+    @AfterEach
+    void after() {
+        compactor.close();
+        repository.deleteAll(List.of(MEMBER_A, MEMBER_B, MEMBER_C));
+    }
+
+    @Test
+    void transferAppendsOneRow() {
+        assertThat(repository.transfer(MEMBER_A, MEMBER_B, 3000, "tx-1")).isTrue();
+        assertThat(repository.transfer(MEMBER_A, MEMBER_B, 8000, "tx-2")).isFalse();
+        assertThat(repository.transfer(MEMBER_A, "ledgerX", 10, "tx-3")).isFalse();
+
+        assertThat(ledgerRows()).isEqualTo(1);
+        // member 행은 그대로
+        assertThat(snapshot(MEMBER_A)).isEqualTo(10000);
+        Member memberA = repository.findById(MEMBER_A);
+        assertThat(memberA.getMoney()).isEqualTo(7000);
+        assertThat(memberA.getVersion()).isEqualTo(1);
+        assertThat(repository.findAllByIds(List.of(MEMBER_A, MEMBER_B)).get(MEMBER_B).getMoney()).isEqualTo(3000);
+    }
+
+    @Test
+    void compactionKeepsBalanceAndVersion() {
+        repository.transfer(MEMBER_A, MEMBER_B, 3000, "tx-1");
+        repository.deposit(MEMBER_B, 500);
+        repository.withdraw(MEMBER_A, 1000);
+        Member beforeA = repository.findById(MEMBER_A);
+        Member beforeB = repository.findById(MEMBER_B);
+
+        assertThat(compactor.compact()).isGreaterThanOrEqualTo(3);
+
+        assertThat(repository.findById(MEMBER_A)).isEqualTo(beforeA);
+        assertThat(repository.findById(MEMBER_B)).isEqualTo(beforeB);
+        assertThat(snapshot(MEMBER_A)).isEqualTo(6000);
+        assertThat(snapshot(MEMBER_B)).isEqualTo(3500);
+    }
+
+    @Test
+    void setBalanceWithPendingEntries() {
+        repository.deposit(MEMBER_B, 500);
+        Member read = repository.findById(MEMBER_B);
+
+        repository.update(MEMBER_B, 2000);
+        assertThat(repository.findById(MEMBER_B).getMoney()).isEqualTo(2000);
+        assertThat(repository.updateIfVersion(MEMBER_B, 1, read.getVersion())).isFalse();
+
+        compactor.compact();
+        assertThat(repository.findById(MEMBER_B).getMoney()).isEqualTo(2000);
+    }
+
+    @Test
+    void concurrentTransfersWithCompactor() throws Exception {
+        compactor.start(5);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    repository.transfer(MEMBER_A, MEMBER_B, 10, "tx");
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        compactor.close();
+        compactor.compact();
+
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(10000 - 8000);
+        assertThat(repository.findById(MEMBER_B).getMoney()).isEqualTo(8000);
+        assertThat(snapshot(MEMBER_B)).isEqualTo(8000);
+    }
+
+    @Test
+    void concurrentCompactorsApplyEachEntryOnce() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            repository.transfer(MEMBER_A, MEMBER_B, 10, "tx");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            LedgerCompactor small = new LedgerCompactor(dataSource, 7);
+            futures.add(executor.submit(() -> {
+                int total = 0;
+                int compacted;
+                while ((compacted = small.compact()) > 0 || ledgerRows() > 0) {
+                    total += compacted;
+                }
+                return total;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            total += future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(total).isEqualTo(300);
+        assertThat(snapshot(MEMBER_A)).isEqualTo(7000);
+        assertThat(snapshot(MEMBER_B)).isEqualTo(3000);
+    }
+
+    @Test
+    void deleteCompactsOnlyThatMember() {
+        repository.save(new Member(MEMBER_C, 5000));
+        repository.transfer(MEMBER_A, MEMBER_B, 1000, "tx-1");
+        repository.transfer(MEMBER_C, MEMBER_A, 500, "tx-2");
+
+        repository.delete(MEMBER_B);
+
+        // ledgerB 원장만 반영: 상대인 ledgerA 스냅샷에 출금 반영, ledgerC -> ledgerA 원장은 그대로
+        assertThat(snapshot(MEMBER_A)).isEqualTo(9000);
+        assertThat(snapshot(MEMBER_C)).isEqualTo(5000);
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(9500);
+        assertThat(repository.findById(MEMBER_C).getMoney()).isEqualTo(4500);
+    }
+
+    @Test
+    void staleCreditNotAddedToRecreatedMember() {
+        repository.delete(MEMBER_B);
+        // 삭제 커밋 직전에 회원을 읽은 이체가 삭제 후에 남긴 원장 행
+        new JdbcTemplate(dataSource).update(
+                "insert into ledger(tx_id, from_id, to_id, amount) values ('late', ?, ?, 700)", MEMBER_A, MEMBER_B);
+
+        repository.save(new Member(MEMBER_B, 0));
+        compactor.compact();
+
+        assertThat(repository.findById(MEMBER_B).getMoney()).isZero();
+        assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(9300);
+    }
+
+    @Test
+    void deleteWhileCompacting() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LedgerCompactor small = new LedgerCompactor(dataSource, 5);
+        Future<?> compacting = executor.submit(() -> {
+            while (running.get()) {
+                small.compact();
+            }
+            return null;
+        });
+        Future<?> transferring = executor.submit(() -> {
+            while (running.get()) {
+                repository.transfer(MEMBER_A, MEMBER_B, 1, "tx");
+            }
+            return null;
+        });
+
+        // 반영기가 ledgerC 원장을 반영하는 중에 ledgerC 삭제 (회원 행 -> 원장 행 순서가 같아 데드락 없음)
+        int rounds = 50;
+        try {
+            for (int i = 0; i < rounds; i++) {
+                repository.save(new Member(MEMBER_C, 1000));
+                for (int j = 0; j < 5; j++) {
+                    repository.transfer(MEMBER_A, MEMBER_C, 10, "tx-c");
+                    repository.transfer(MEMBER_C, MEMBER_B, 20, "tx-c");
+                }
+                repository.delete(MEMBER_C);
+            }
+        } finally {
+            running.set(false);
+            compacting.get(1, TimeUnit.MINUTES);
+            transferring.get(1, TimeUnit.MINUTES);
+            executor.shutdown();
+        }
+        compactor.compact();
+
+        // ledgerA -> ledgerC 50, ledgerC -> ledgerB 100 씩 rounds 번, 나머지는 ledgerA -> ledgerB
+        int a = repository.findById(MEMBER_A).getMoney();
+        int b = repository.findById(MEMBER_B).getMoney();
+        assertThat(a + b).isEqualTo(10000 - rounds * 50 + rounds * 100);
+    }
+
+    private static int snapshot(String memberId) {
+        return new JdbcTemplate(dataSource).queryForObject("select money from member where member_id = ?", Integer.class, memberId);
+    }
+
+    private static int ledgerRows() {
+        return new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from ledger where to_id = ? and compacted = false", Integer.class, MEMBER_B);
+    }
+}
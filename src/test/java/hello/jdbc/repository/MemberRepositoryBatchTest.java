@@ -0,0 +1,151 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * saveAll / updateAll / deleteAll / findAllByIds / upsertAll - 청크 분할 확인
+ */
+@Slf4j
+class MemberRepositoryBatchTest {
+
+    static HikariDataSource dataSource;
+
+    @BeforeAll
+    static void beforeAll() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        dataSource.close();
+    }
+
+    @AfterEach
+    void after() {
+        new JdbcTemplate(dataSource).update("delete from member where member_id like 'batch%'");
+    }
+
+    static Stream<MemberRepository> repositories() {
+        return Stream.of(
+                new MemberRepositoryV4_1(dataSource, 3),
+                new MemberRepositoryV4_2(dataSource, 3),
+                new MemberRepositoryV5(dataSource, 3));
+    }
+
+    @ParameterizedTest
+    @MethodSource("repositories")
+    void batch(MemberRepository repository) {
+        List<Member> members = members(10, 1000);
+
+        // saveAll
+        repository.saveAll(members);
+        assertThat(count()).isEqualTo(10);
+
+        // updateAll
+        repository.updateAll(members(10, 2000));
+        assertThat(repository.findById("batch7").getMoney()).isEqualTo(2000);
+
+        // deleteAll
+        repository.deleteAll(members.stream().map(Member::getMemberId).collect(Collectors.toList()));
+        assertThat(count()).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("repositories")
+    void findAllByIds(MemberRepository repository) {
+        // 128 + 32 모양 두 번으로 나뉘는 건수
+        repository.saveAll(members(150, 1000));
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 160; i++) {
+            ids.add("batch" + i);    // batch150 ~ batch159 는 없는 회원
+        }
+        ids.add("batch0");  // 중복 키
+
+        Map<String, Member> result = repository.findAllByIds(ids);
+        assertThat(result).hasSize(150);
+        assertThat(result.get("batch149").getMoney()).isEqualTo(1000);
+        assertThat(result).doesNotContainKey("batch150");
+        assertThat(repository.findAllByIds(List.of())).isEmpty();
+    }
+
+    static Stream<MemberRepository> translatingRepositories() {
+        return Stream.of(
+                new MemberRepositoryV4_2(dataSource, 3),
+                new MemberRepositoryV5(dataSource, 3));
+    }
+
+    @ParameterizedTest
+    @MethodSource("translatingRepositories")
+    void duplicateKeyInChunk(MemberRepository repository) {
+        // 두 번째 청크에 중복 키
+        List<Member> members = members(5, 1000);
+        members.add(new Member("batch1", 1000));
+
+        assertThatThrownBy(() -> repository.saveAll(members))
+                .isInstanceOf(DuplicateKeyException.class);
+        // 첫 번째 청크는 오토 커밋으로 이미 반영
+        assertThat(count()).isGreaterThanOrEqualTo(3);
+    }
+
+    @ParameterizedTest
+    @MethodSource("repositories")
+    void upsert(MemberRepository repository) {
+        assertThat(repository.upsert(new Member("batch0", 1000))).isEqualTo(new UpsertResult(1, 0));
+        assertThat(repository.upsert(new Member("batch0", 2000))).isEqualTo(new UpsertResult(0, 1));
+        assertThat(repository.findById("batch0").getMoney()).isEqualTo(2000);
+    }
+
+    @ParameterizedTest
+    @MethodSource("repositories")
+    void upsertAll(MemberRepository repository) {
+        repository.saveAll(members(50, 1000));
+
+        // 170 명 중 50 명은 이미 있음, batch0 은 세 번 나옴 (같은 문장에 두 번 들어가지 않도록 끊어서 실행)
+        List<Member> members = members(170, 2000);
+        members.add(1, new Member("batch0", 2500));
+        members.add(new Member("batch0", 3000));
+        UpsertResult result = repository.upsertAll(members);
+
+        assertThat(result).isEqualTo(new UpsertResult(120, 52));
+        assertThat(count()).isEqualTo(170);
+        assertThat(repository.findById("batch0").getMoney()).isEqualTo(3000);
+        assertThat(repository.findById("batch169").getMoney()).isEqualTo(2000);
+        assertThat(repository.upsertAll(List.of())).isEqualTo(UpsertResult.EMPTY);
+    }
+
+    private static List<Member> members(int size, int money) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            members.add(new Member("batch" + i, money));
+        }
+        return members;
+    }
+
+    private static int count() {
+        return new JdbcTemplate(dataSource)
+                .queryForObject("select count(*) from member where member_id like 'batch%'", Integer.class);
+    }
+}
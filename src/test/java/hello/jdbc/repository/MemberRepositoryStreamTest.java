@@ -0,0 +1,121 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 전체 회원 스트리밍 조회
+ * 커넥션 풀 크기 1: Stream 을 닫을 때 커넥션이 반납되지 않으면 다음 조회가 커넥션을 얻지 못한다.
+ */
+@Slf4j
+class MemberRepositoryStreamTest {
+
+    static HikariDataSource dataSource;
+
+    @BeforeAll
+    static void beforeAll() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(1);
+        dataSource.setConnectionTimeout(1000);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        dataSource.close();
+    }
+
+    @AfterEach
+    void after() {
+        new JdbcTemplate(dataSource).update("delete from member where member_id like 'stream%'");
+    }
+
+    static Stream<MemberRepository> repositories() {
+        return Stream.of(
+                new MemberRepositoryV4_1(dataSource),
+                new MemberRepositoryV4_2(dataSource),
+                new MemberRepositoryV5(dataSource));
+    }
+
+    @ParameterizedTest
+    @MethodSource("repositories")
+    void streamAll(MemberRepository repository) {
+        repository.saveAll(members(300));
+
+        long count;
+        try (Stream<Member> members = repository.streamAll(50)) {
+            count = members.filter(member -> member.getMemberId().startsWith("stream")).count();
+        }
+        assertThat(count).isEqualTo(300);
+
+        // 커넥션 반납 확인
+        assertThat(repository.findById("stream0").getMoney()).isEqualTo(1000);
+    }
+
+    @ParameterizedTest
+    @MethodSource("repositories")
+    void forEachMemberInTransaction(MemberRepository repository) {
+        repository.saveAll(members(10));
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        AtomicInteger count = new AtomicInteger();
+        txTemplate.executeWithoutResult(status -> {
+            repository.forEachMember(4, member -> {
+                if (member.getMemberId().startsWith("stream")) {
+                    count.incrementAndGet();
+                }
+            });
+            // 같은 트랜잭션 커넥션을 그대로 사용
+            assertThat(repository.findById("stream9").getMoney()).isEqualTo(1000);
+        });
+        assertThat(count).hasValue(10);
+    }
+
+    @ParameterizedTest
+    @MethodSource("repositories")
+    void forEachMemberInPlace(MemberRepository repository) {
+        repository.saveAll(members(100));
+
+        Set<Member> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        AtomicLong sum = new AtomicLong();
+        repository.forEachMemberInPlace(16, member -> {
+            if (member.getMemberId().startsWith("stream")) {
+                instances.add(member);
+                sum.addAndGet(member.getMoney());
+            }
+        });
+        assertThat(sum).hasValue(100 * 1000);
+        // 같은 Member 객체를 재사용
+        assertThat(instances).hasSize(1);
+
+        // 커넥션 반납 확인
+        assertThat(repository.findById("stream0").getMoney()).isEqualTo(1000);
+    }
+
+    private static List<Member> members(int size) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            members.add(new Member("stream" + i, 1000));
+        }
+        return members;
+    }
+}
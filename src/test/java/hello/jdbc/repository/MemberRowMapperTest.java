@@ -0,0 +1,66 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberRowMapperTest {
+
+    JdbcTemplate template = new JdbcTemplate(new DriverManagerDataSource(URL, USERNAME, PASSWORD));
+
+    @AfterEach
+    void after() {
+        template.update("delete from member where member_id like 'rowMap%'");
+    }
+
+    @Test
+    void forShape() {
+        template.update("insert into member(member_id, money) values ('rowMapA', 1000)");
+
+        // 컬럼 순서가 COLUMNS 와 다른 결과
+        Member member = template.query("select money, member_id from member where member_id = 'rowMapA'", rs -> {
+            MemberRowMapper mapper = MemberRowMapper.forShape(rs.getMetaData());
+            assertThat(mapper).isNotSameAs(MemberRowMapper.INSTANCE);
+            rs.next();
+            return mapper.mapRow(rs, 0);
+        });
+        assertThat(member).isEqualTo(new Member("rowMapA", 1000));
+
+        MemberRowMapper same = template.query("select " + MemberRowMapper.COLUMNS + " from member",
+                (ResultSetExtractor<MemberRowMapper>) rs -> MemberRowMapper.forShape(rs.getMetaData()));
+        assertThat(same).isSameAs(MemberRowMapper.INSTANCE);
+    }
+
+    @Test
+    void forShapeMissingColumn() {
+        assertThatThrownBy(() -> template.query("select member_id from member",
+                (ResultSetExtractor<MemberRowMapper>) rs -> MemberRowMapper.forShape(rs.getMetaData())))
+                .hasCauseInstanceOf(SQLException.class);
+    }
+
+    @Test
+    void fill() {
+        template.update("insert into member(member_id, money) values ('rowMapA', 1000)");
+        template.update("insert into member(member_id, money) values ('rowMapB', 2000)");
+
+        Member reused = new Member();
+        List<String> copies = new ArrayList<>();
+        template.query("select " + MemberRowMapper.COLUMNS + " from member where member_id like 'rowMap%' order by member_id",
+                rs -> {
+                    assertThat(MemberRowMapper.INSTANCE.fill(rs, reused)).isSameAs(reused);
+                    copies.add(reused.getMemberId() + ":" + reused.getMoney());
+                });
+        assertThat(copies).containsExactly("rowMapA:1000", "rowMapB:2000");
+    }
+}
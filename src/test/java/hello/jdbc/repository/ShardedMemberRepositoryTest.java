@@ -0,0 +1,182 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedMemberRepositoryTest {
+
+    static final String HOT = "shardHot";
+    static final String PLAIN = "shardPlain";
+
+    static HikariDataSource dataSource;
+    ShardedMemberRepository repository;
+
+    @BeforeAll
+    static void beforeAll() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        dataSource.close();
+    }
+
+    @BeforeEach
+    void before() {
+        repository = new ShardedMemberRepository(new MemberRepositoryV4_2(dataSource), dataSource, 4,
+                ShardedMemberRepository.ShardSelection.RANDOM);
+        repository.save(new Member(HOT, 1000));
+        repository.save(new Member(PLAIN, 1000));
+        repository.enableShards(HOT);
+    }
+
+    @AfterEach
+    void after() {
+        repository.deleteAll(List.of(HOT, PLAIN));
+    }
+
+    @Test
+    void depositToShards() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(repository.deposit(HOT, 100)).isTrue();
+        }
+        assertThat(repository.deposit(PLAIN, 100)).isTrue();
+
+        assertThat(repository.findById(HOT).getMoney()).isEqualTo(3000);
+        assertThat(repository.findById(PLAIN).getMoney()).isEqualTo(1100);
+        assertThat(repository.findAllByIds(List.of(HOT, PLAIN)).get(HOT).getMoney()).isEqualTo(3000);
+        // member 행은 그대로, 분할 행에 입금
+        assertThat(new JdbcTemplate(dataSource).queryForObject(
+                "select money from member where member_id = ?", Integer.class, HOT)).isEqualTo(1000);
+    }
+
+    @Test
+    void depositWithoutEnableShardsGoesToMemberRow() {
+        // 다른 인스턴스가 분할을 켠 회원: 이 인스턴스에서는 member 행에 입금, 잔액은 분할 행과 합산
+        repository.deposit(HOT, 100);
+        ShardedMemberRepository other = new ShardedMemberRepository(new MemberRepositoryV4_2(dataSource), dataSource, 4,
+                ShardedMemberRepository.ShardSelection.RANDOM);
+        assertThat(other.deposit(HOT, 100)).isTrue();
+        assertThat(other.depositAll(List.of(new Transfer(PLAIN, HOT, 100), new Transfer(HOT, PLAIN, 100))))
+                .containsExactly(1, 1);
+
+        assertThat(new JdbcTemplate(dataSource).queryForObject(
+                "select money from member where member_id = ?", Integer.class, HOT)).isEqualTo(1200);
+        assertThat(repository.findById(HOT).getMoney()).isEqualTo(1300);
+        assertThat(repository.findById(PLAIN).getMoney()).isEqualTo(1100);
+    }
+
+    @Test
+    void missingMemberWithV5Target() {
+        // MemberRepositoryV5 는 없는 회원을 EmptyResultDataAccessException 으로 알리지만 계약대로 false
+        ShardedMemberRepository v5 = new ShardedMemberRepository(new MemberRepositoryV5(dataSource), dataSource, 4,
+                ShardedMemberRepository.ShardSelection.RANDOM);
+        assertThat(v5.withdraw("shardNone", 100)).isFalse();
+        assertThat(v5.updateIfVersion("shardNone", 100, 0)).isFalse();
+        assertThat(v5.withdrawAll(List.of(new Transfer("shardNone", HOT, 100)))).containsExactly(0);
+        assertThatThrownBy(() -> v5.findByIdForUpdate("shardNone")).isInstanceOf(NoSuchElementException.class);
+
+        v5.enableShards(HOT);
+        assertThat(v5.deposit(HOT, 500)).isTrue();
+        assertThat(v5.withdraw(HOT, 1500)).isTrue();
+        assertThat(v5.findById(HOT).getMoney()).isZero();
+    }
+
+    @Test
+    void threadSelectionSpreadsThreadsOverShards() throws Exception {
+        ShardedMemberRepository perThread = new ShardedMemberRepository(new MemberRepositoryV4_2(dataSource), dataSource, 4,
+                ShardedMemberRepository.ShardSelection.THREAD);
+        perThread.enableShards(HOT);
+
+        // 서로 다른 스레드 4 개가 두 번씩 입금: 스레드마다 다른 분할 행 하나에만 쌓인다
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch allStarted = new CountDownLatch(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                allStarted.countDown();
+                allStarted.await();
+                perThread.deposit(HOT, 100);
+                perThread.deposit(HOT, 100);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(new JdbcTemplate(dataSource).queryForList(
+                "select money from member_shard where member_id = ?", Integer.class, HOT)).containsOnly(200);
+        assertThat(perThread.findById(HOT).getMoney()).isEqualTo(1800);
+    }
+
+    @Test
+    void withdrawSweepsShards() {
+        repository.deposit(HOT, 500);
+        repository.deposit(HOT, 500);
+
+        // member 행(1000)만으로 부족 -> 분할 행까지 모아서 차감
+        assertThat(repository.withdraw(HOT, 1500)).isTrue();
+        assertThat(repository.findById(HOT).getMoney()).isEqualTo(500);
+        assertThat(repository.withdraw(HOT, 501)).isFalse();
+        assertThat(repository.withdrawAll(List.of(new Transfer(HOT, PLAIN, 500)))).containsExactly(1);
+        assertThat(repository.findById(HOT).getMoney()).isZero();
+    }
+
+    @Test
+    void versionCoversShards() {
+        Member read = repository.findById(HOT);
+        repository.deposit(HOT, 100);
+
+        // 분할 행 입금도 버전을 올리므로 읽은 버전으로는 갱신 실패
+        assertThat(repository.updateIfVersion(HOT, read.getMoney() + 1, read.getVersion())).isFalse();
+
+        Member current = repository.findById(HOT);
+        assertThat(repository.updateIfVersion(HOT, 50, current.getVersion())).isTrue();
+        Member updated = repository.findById(HOT);
+        assertThat(updated.getMoney()).isEqualTo(50);
+        assertThat(updated.getVersion()).isGreaterThan(current.getVersion());
+    }
+
+    @Test
+    void concurrentDeposits() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                List<Transfer> transfers = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    repository.deposit(HOT, 1);
+                    transfers.add(new Transfer(PLAIN, HOT, 1));
+                }
+                repository.depositAll(transfers);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        assertThat(repository.findById(HOT).getMoney()).isEqualTo(1000 + 8 * 100);
+    }
+}
@@ -0,0 +1,174 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionStatementCacheTest {
+
+    public static final String MEMBER_A = "stmtA";
+    public static final String MEMBER_B = "stmtB";
+
+    private HikariDataSource hikari;
+    private CountingDataSource dataSource;
+    private TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        hikari = new HikariDataSource();
+        hikari.setJdbcUrl(URL);
+        hikari.setUsername(USERNAME);
+        hikari.setPassword(PASSWORD);
+        dataSource = new CountingDataSource(hikari);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        MemberRepository setup = new MemberRepositoryV4_2(hikari);
+        setup.save(new Member(MEMBER_A, 10000));
+        setup.save(new Member(MEMBER_B, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        new MemberRepositoryV4_2(hikari).deleteAll(List.of(MEMBER_A, MEMBER_B));
+        hikari.close();
+    }
+
+    @Test
+    void reuseInTransaction() throws SQLException {
+        MemberRepository repository = new MemberRepositoryV4_2(dataSource);
+
+        txTemplate.executeWithoutResult(status -> transfer(repository));
+
+        // findById, update 두 SQL 만 prepare
+        assertThat(dataSource.prepared).hasSize(2);
+        // 트랜잭션이 끝나면 모두 닫힘
+        for (PreparedStatement pstmt : dataSource.prepared) {
+            assertThat(pstmt.isClosed()).isTrue();
+        }
+        assertThat(repository.findById(MEMBER_B).getMoney()).isEqualTo(10100);
+    }
+
+    @Test
+    void closeOnRollback() throws SQLException {
+        MemberRepository repository = new MemberRepositoryV4_1(dataSource);
+
+        txTemplate.executeWithoutResult(status -> {
+            transfer(repository);
+            status.setRollbackOnly();
+        });
+
+        assertThat(dataSource.prepared).hasSize(2);
+        for (PreparedStatement pstmt : dataSource.prepared) {
+            assertThat(pstmt.isClosed()).isTrue();
+        }
+        assertThat(repository.findById(MEMBER_B).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    void noReuseWithoutTransaction() {
+        MemberRepository repository = new MemberRepositoryV4_2(dataSource);
+        transfer(repository);
+        assertThat(dataSource.prepared).hasSize(4);
+    }
+
+    @Test
+    void disabled() {
+        MemberRepository repository = new MemberRepositoryV4_2(dataSource, 1000, 0);
+        txTemplate.executeWithoutResult(status -> transfer(repository));
+        assertThat(dataSource.prepared).hasSize(4);
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws SQLException {
+        MemberRepository repository = new MemberRepositoryV4_2(dataSource, 1000, 1);
+        txTemplate.executeWithoutResult(status -> {
+            repository.findById(MEMBER_A);
+            repository.update(MEMBER_A, 1);
+            // findById statement 는 밀려나서 닫힘
+            try {
+                assertThat(dataSource.prepared.get(0).isClosed()).isTrue();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            repository.update(MEMBER_B, 1);
+        });
+        assertThat(dataSource.prepared).hasSize(2);
+    }
+
+    @Test
+    void separateCachePerRepository() {
+        // 같은 DataSource, 같은 트랜잭션이어도 리포지토리마다 자기 캐시와 크기 제한을 쓴다
+        MemberRepository large = new MemberRepositoryV4_2(dataSource, 1000, 16);
+        MemberRepository small = new MemberRepositoryV4_2(dataSource, 1000, 1);
+        txTemplate.executeWithoutResult(status -> {
+            large.findById(MEMBER_A);
+            small.findById(MEMBER_A);
+            small.update(MEMBER_A, 1);
+            // small 의 findById statement 는 크기 1 제한으로 밀려났으므로 다시 prepare
+            small.findById(MEMBER_A);
+            large.findById(MEMBER_A);
+        });
+        assertThat(dataSource.prepared).hasSize(4);
+    }
+
+    /**
+     * MemberServiceV4.bizLogic 과 같은 순서
+     */
+    private static void transfer(MemberRepository repository) {
+        Member fromMember = repository.findById(MEMBER_A);
+        Member toMember = repository.findById(MEMBER_B);
+        repository.update(MEMBER_A, fromMember.getMoney() - 100);
+        repository.update(MEMBER_B, toMember.getMoney() + 100);
+    }
+
+    /**
+     * prepareStatement 로 만든 statement 기록
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+        final List<PreparedStatement> prepared = new CopyOnWriteArrayList<>();
+
+        CountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection target = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        }
+                        if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        try {
+                            Object result = method.invoke(target, args);
+                            if (method.getName().equals("prepareStatement")) {
+                                prepared.add((PreparedStatement) result);
+                            }
+                            return result;
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.TransferResult;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 플랫폼 스레드 / 가상 스레드 동시 이체 (가상 스레드는 Java 21 에서 실행할 때만)
+ */
+@Slf4j
+@SpringBootTest
+class ConcurrentTransferServiceTest {
+
+    public static final String MEMBER_A = "vthreadA";
+    public static final String MEMBER_B = "vthreadB";
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MemberServiceV4 memberService;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+
+        public TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_2(dataSource);
+        }
+
+        @Bean
+        MemberServiceV4 memberService() {
+            return new MemberServiceV4(memberRepository());
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.deleteAll(List.of(MEMBER_A, MEMBER_B));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ConcurrentTransferService.Mode.class)
+    @DisplayName("동시 이체 후 잔액 합계 보존")
+    void transfer(ConcurrentTransferService.Mode mode) throws Exception {
+        assumeTrue(mode == ConcurrentTransferService.Mode.PLATFORM || TransferExecutors.isVirtualThreadSupported());
+
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        try (ConcurrentTransferService service = new ConcurrentTransferService(memberService, mode, 8, 1000)) {
+            for (int i = 0; i < 200; i++) {
+                // 같은 방향만 - 반대 방향 동시 이체는 원자적 갱신에서도 데드락이 날 수 있음
+                futures.add(service.submit(MEMBER_A, MEMBER_B, 10));
+            }
+            for (CompletableFuture<TransferResult> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS).isSuccess()).isTrue();
+            }
+        }
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("잔액 부족은 실패 결과")
+    void insufficient() throws Exception {
+        try (ConcurrentTransferService service = new ConcurrentTransferService(
+                memberService, ConcurrentTransferService.Mode.PLATFORM, 2, 10)) {
+            TransferResult result = service.submit(MEMBER_A, MEMBER_B, 20000).get(10, TimeUnit.SECONDS);
+            assertThat(result.isSuccess()).isFalse();
+        }
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("동시 처리 한도를 넘으면 거절")
+    void rejectOverLimit() {
+        try (ConcurrentTransferService service = new ConcurrentTransferService(
+                memberService, ConcurrentTransferService.Mode.PLATFORM, 1, 1)) {
+            List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(service.submit(MEMBER_A, MEMBER_B, 1));
+            }
+            assertThatThrownBy(() -> CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join())
+                    .hasCauseInstanceOf(RejectedExecutionException.class);
+        }
+    }
+
+    @Test
+    void virtualUnsupported() {
+        assumeTrue(!TransferExecutors.isVirtualThreadSupported());
+        assertThatThrownBy(TransferExecutors::virtual).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
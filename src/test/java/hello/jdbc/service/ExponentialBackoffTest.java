@@ -0,0 +1,27 @@
+package hello.jdbc.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExponentialBackoffTest {
+
+    @Test
+    void delayWithinCap() {
+        ExponentialBackoff backoff = new ExponentialBackoff(10, 100);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(backoff.delayMillis(1)).isBetween(0L, 10L);
+            assertThat(backoff.delayMillis(3)).isBetween(0L, 40L);
+            // 상한은 maxBackoff 에서 멈춤 (시도 횟수가 커도 shift overflow 없음)
+            assertThat(backoff.delayMillis(5)).isBetween(0L, 100L);
+            assertThat(backoff.delayMillis(100)).isBetween(0L, 100L);
+        }
+    }
+
+    @Test
+    void noDelayWithoutBase() {
+        ExponentialBackoff backoff = new ExponentialBackoff(0, 100);
+        assertThat(backoff.delayMillis(5)).isZero();
+        backoff.sleep(5);
+    }
+}
@@ -0,0 +1,195 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.TransferReceipt;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.TransferReceiptRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * idempotency key 이체 - 같은 key 로 다시 요청해도 한 번만 이체
+ */
+@Slf4j
+@SpringBootTest
+class IdempotentTransferServiceTest {
+
+    public static final String MEMBER_A = "idemA";
+    public static final String MEMBER_B = "idemB";
+    private static final int THREADS = 8;
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private TransferReceiptRepository receiptRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MemberServiceV4 memberService;
+    private IdempotentTransferService transferService;
+    private final List<String> keys = new ArrayList<>();
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        DataSource dataSource() {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(URL);
+            dataSource.setUsername(USERNAME);
+            dataSource.setPassword(PASSWORD);
+            dataSource.setMaximumPoolSize(THREADS);
+            return dataSource;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(dataSource());
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_2(dataSource());
+        }
+
+        @Bean
+        TransferReceiptRepository transferReceiptRepository() {
+            return new TransferReceiptRepository(dataSource());
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        memberService = new MemberServiceV4(memberRepository);
+        transferService = new IdempotentTransferService(memberService, receiptRepository, transactionManager, 100);
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        keys.forEach(receiptRepository::delete);
+    }
+
+    @Test
+    @DisplayName("같은 key 재요청은 캐시에서 처음 영수증 반환, 출금은 한 번")
+    void duplicateFromCache() {
+        String key = newKey();
+        TransferReceipt first = transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 2000);
+        TransferReceipt retry = transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(retry).isEqualTo(first);
+        assertThat(transferService.cacheHits()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("캐시에 없는 key(다른 서버, 재시작)는 저장된 영수증으로 중복을 막는다")
+    void duplicateFromTable() {
+        String key = newKey();
+        TransferReceipt first = transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 2000);
+
+        IdempotentTransferService otherServer = new IdempotentTransferService(memberService, receiptRepository, transactionManager, 100);
+        assertThat(otherServer.accountTransfer(key, MEMBER_A, MEMBER_B, 2000)).isEqualTo(first);
+        assertThat(otherServer.storedHits()).isEqualTo(1);
+        assertThat(otherServer.executed()).isZero();
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+    }
+
+    @Test
+    @DisplayName("실패한 이체는 key 가 남지 않아 다시 시도할 수 있다")
+    void failedTransferCanBeRetried() {
+        String key = newKey();
+        assertThatThrownBy(() -> transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 20000))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(receiptRepository.findByKey(key)).isEmpty();
+
+        memberRepository.update(MEMBER_A, 30000);
+        transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 20000);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(receiptRepository.findByKey(key)).isPresent();
+    }
+
+    @Test
+    @DisplayName("같은 key 로 다른 이체를 요청하면 예외")
+    void keyReusedForOtherTransfer() {
+        String key = newKey();
+        transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 2000);
+
+        assertThatThrownBy(() -> transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 3000))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+    }
+
+    @Test
+    @DisplayName("정리한 영수증의 key 는 캐시에서도 지워져 새 이체로 처리")
+    void purgeEvictsCache() {
+        String key = newKey();
+        transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(transferService.purgeReceiptsCreatedBefore(new Timestamp(System.currentTimeMillis() + 60_000)))
+                .isGreaterThanOrEqualTo(1);
+        assertThat(receiptRepository.findByKey(key)).isEmpty();
+
+        transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 2000);
+        assertThat(transferService.cacheHits()).isZero();
+        assertThat(transferService.executed()).isEqualTo(2);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(6000);
+    }
+
+    @Test
+    @DisplayName("같은 key 동시 요청도 한 번만 이체")
+    void concurrentDuplicates() throws Exception {
+        String key = newKey();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<TransferReceipt>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return transferService.accountTransfer(key, MEMBER_A, MEMBER_B, 1000);
+            }));
+        }
+        start.countDown();
+        for (Future<TransferReceipt> future : futures) {
+            assertThat(future.get(1, TimeUnit.MINUTES)).isEqualTo(new TransferReceipt(key, MEMBER_A, MEMBER_B, 1000));
+        }
+        executor.shutdown();
+        log.info("executed={}, cacheHits={}, storedHits={}",
+                transferService.executed(), transferService.cacheHits(), transferService.storedHits());
+
+        assertThat(transferService.executed()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(11000);
+    }
+
+    private String newKey() {
+        String key = "test-" + UUID.randomUUID();
+        keys.add(key);
+        return key;
+    }
+}
@@ -126,4 +126,18 @@ class MemberServiceV3_3Test {
         assertThat(findMemberB.getMoney()).isEqualTo(10000);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("원자적 이체")
+    void accountTransferAtomic() throws SQLException {
+        // given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        // when
+        memberService.accountTransferAtomic(MEMBER_A, MEMBER_B, 2000);
+
+        // then
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+}
@@ -0,0 +1,191 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.connection.DataSourceFactory;
+import hello.jdbc.connection.PoolSizeController;
+import hello.jdbc.domain.Member;
+import hello.jdbc.metrics.MetricsDataSource;
+import hello.jdbc.metrics.PoolMonitor;
+import hello.jdbc.metrics.StatementMetrics;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 풀 크기 자동 조절 부하 테스트
+ * 동시 스레드를 1 -> 256 으로 늘려가며 accountTransfer 실행, 실패 없이 잔액이 보존되고 풀 크기가 범위 안인지 확인
+ * 스레드마다 자기 회원 두 명 사이에서만 이체하므로 락 경합 없이 커넥션 풀만 병목이 된다.
+ * 처리량은 실행 환경에 따라 달라지므로 검증하지 않고 로그로만 남긴다. (비교 측정은 PoolSizeControllerBenchmark)
+ */
+@Slf4j
+@SpringBootTest
+class MemberServiceV4LoadTest {
+
+    private static final int[] STAGES = {1, 4, 16, 64, 256};
+    private static final long STAGE_MILLIS = 1000;
+    private static final int MIN_POOL = 2;
+    private static final int MAX_POOL = 32;
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MemberServiceV4 memberService;
+    @Autowired
+    private HikariDataSource pool;
+    @Autowired
+    private PoolSizeController controller;
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean(destroyMethod = "close")
+        HikariDataSource pool() {
+            return DataSourceFactory.pooledDataSource("LoadPool", MIN_POOL, MIN_POOL, true);
+        }
+
+        @Bean
+        PoolMonitor poolMonitor() {
+            return new PoolMonitor(pool(), 0);
+        }
+
+        @Bean
+        StatementMetrics statementMetrics() {
+            return new StatementMetrics(Long.MAX_VALUE / 1_000_000);
+        }
+
+        @Bean
+        DataSource dataSource() {
+            return new MetricsDataSource(poolMonitor().dataSource(), statementMetrics());
+        }
+
+        @Bean(destroyMethod = "close")
+        PoolSizeController poolSizeController() {
+            return new PoolSizeController(pool(), poolMonitor(), statementMetrics(), MIN_POOL, MAX_POOL, 2);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(dataSource());
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_2(dataSource());
+        }
+
+        @Bean
+        MemberServiceV4 memberService() {
+            return new MemberServiceV4(memberRepository());
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        memberRepository.saveAll(members());
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.deleteAll(memberIds());
+    }
+
+    @Test
+    @DisplayName("동시 스레드 1 -> 256, 풀 크기는 자동 조절")
+    void ramp() throws Exception {
+        controller.start(100);
+        Map<Integer, Double> throughput = new LinkedHashMap<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(STAGES[STAGES.length - 1]);
+        try {
+            for (int threads : STAGES) {
+                throughput.put(threads, runStage(executor, threads, failures));
+                log.info("threads={} transfers/sec={} poolSize={}",
+                        threads, Math.round(throughput.get(threads)), pool.getMaximumPoolSize());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(failures.get()).isZero();
+        assertThat(pool.getMaximumPoolSize()).isBetween(MIN_POOL, MAX_POOL);
+        // 스레드마다 자기 회원 두 명 사이에서만 이체하므로 두 잔액 합은 그대로
+        Map<String, Member> balances = memberRepository.findAllByIds(memberIds());
+        for (int t = 0; t < STAGES[STAGES.length - 1]; t++) {
+            assertThat(balances.get("load" + t + "A").getMoney() + balances.get("load" + t + "B").getMoney())
+                    .isEqualTo(200000);
+        }
+    }
+
+    private double runStage(ExecutorService executor, int threads, AtomicInteger failures) throws Exception {
+        LongAdder transfers = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            String memberA = "load" + t + "A";
+            String memberB = "load" + t + "B";
+            futures.add(executor.submit(() -> {
+                start.await();
+                boolean forward = true;
+                while (System.nanoTime() < deadline[0]) {
+                    try {
+                        memberService.accountTransfer(forward ? memberA : memberB, forward ? memberB : memberA, 1);
+                        transfers.increment();
+                    } catch (RuntimeException e) {
+                        log.warn("transfer failed", e);
+                        failures.incrementAndGet();
+                    }
+                    forward = !forward;
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        deadline[0] = startNanos + TimeUnit.MILLISECONDS.toNanos(STAGE_MILLIS);
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        return transfers.sum() * 1_000_000_000.0 / (System.nanoTime() - startNanos);
+    }
+
+    private static List<String> memberIds() {
+        List<String> memberIds = new ArrayList<>();
+        for (Member member : members()) {
+            memberIds.add(member.getMemberId());
+        }
+        return memberIds;
+    }
+
+    private static List<Member> members() {
+        List<Member> members = new ArrayList<>();
+        for (int t = 0; t < STAGES[STAGES.length - 1]; t++) {
+            members.add(new Member("load" + t + "A", 100000));
+            members.add(new Member("load" + t + "B", 100000));
+        }
+        return members;
+    }
+}
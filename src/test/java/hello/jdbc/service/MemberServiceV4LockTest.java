@@ -0,0 +1,192 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 비관적 락 이체 - A->B, B->A 동시 실행 스트레스 테스트
+ */
+@Slf4j
+@SpringBootTest
+class MemberServiceV4LockTest {
+
+    public static final String MEMBER_A = "lockA";
+    public static final String MEMBER_B = "lockB";
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MemberServiceV4 memberService;
+    @Autowired
+    private LockRetryTransferService lockRetryTransferService;
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        DataSource dataSource() {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(URL);
+            dataSource.setUsername(USERNAME);
+            dataSource.setPassword(PASSWORD);
+            dataSource.setMaximumPoolSize(THREADS);
+            // 락 대기 시간을 짧게 해서 락 획득 실패를 빨리 드러냄
+            dataSource.setConnectionInitSql("SET LOCK_TIMEOUT 1000");
+            return dataSource;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(dataSource());
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_2(dataSource());
+        }
+
+        @Bean
+        MemberServiceV4 memberService() {
+            return new MemberServiceV4(memberRepository());
+        }
+
+        @Bean
+        LockRetryTransferService lockRetryTransferService(MemberServiceV4 memberService) {
+            return new LockRetryTransferService(memberService, 5, 10);
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        memberRepository.save(new Member(MEMBER_A, 100000));
+        memberRepository.save(new Member(MEMBER_B, 100000));
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+    }
+
+    @Test
+    @DisplayName("memberId 순서로 잠그면 반대 방향 동시 이체도 실패 없이 끝나고 잔액이 보존된다")
+    void lockOrdering() throws Exception {
+        Result locked = run((fromId, toId) -> lockRetryTransferService.accountTransfer(fromId, toId, 10));
+        log.info("locked: transfers/sec={}, failures={}", locked.transfersPerSec, locked.failures);
+
+        assertThat(locked.failures).isZero();
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(100000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(100000);
+    }
+
+    @Test
+    @DisplayName("원자적 이체도 memberId 순서로 갱신하므로 반대 방향 동시 이체가 데드락 없이 끝난다")
+    void atomicOrdering() throws Exception {
+        Result atomic = run((fromId, toId) -> memberService.accountTransferAtomic(fromId, toId, 10));
+        log.info("atomic: transfers/sec={}, failures={}", atomic.transfersPerSec, atomic.failures);
+
+        assertThat(atomic.errors).isEmpty();
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(100000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(100000);
+    }
+
+    @Test
+    @DisplayName("비교: 락 순서 없는 read-modify-write 이체 - 실패는 모두 데드락/락 획득 실패")
+    void withoutLockOrdering() throws Exception {
+        Result unordered = run((fromId, toId) -> memberService.accountTransfer(fromId, toId, 10));
+        int total = memberRepository.findById(MEMBER_A).getMoney() + memberRepository.findById(MEMBER_B).getMoney();
+        log.info("unordered: transfers/sec={}, failures={}, total={}", unordered.transfersPerSec, unordered.failures, total);
+
+        // 실패는 전부 예외 변환기가 만든 동시성 예외 (데드락: ConcurrencyFailureException, 락 대기 시간 초과: CannotAcquireLockException)
+        assertThat(unordered.errors).hasSize(unordered.failures)
+                .allSatisfy(e -> assertThat(e).isInstanceOf(ConcurrencyFailureException.class));
+        // 잠그지 않고 읽은 값으로 덮어쓰므로 lost update 가 생길 수 있어 합계(total)는 검증하지 않는다.
+    }
+
+    @Test
+    @DisplayName("같은 회원 사이 이체는 거부")
+    void sameMember() {
+        assertThatThrownBy(() -> lockRetryTransferService.accountTransfer(MEMBER_A, MEMBER_A, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    interface Transfer {
+        void transfer(String fromId, String toId);
+    }
+
+    /**
+     * 짝수 스레드는 A->B, 홀수 스레드는 B->A
+     */
+    private Result run(Transfer transfer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        Queue<RuntimeException> errors = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            boolean forward = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    try {
+                        transfer.transfer(forward ? MEMBER_A : MEMBER_B, forward ? MEMBER_B : MEMBER_A);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        errors.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        int succeeded = THREADS * TRANSFERS_PER_THREAD - failures.get();
+        return new Result(succeeded * 1_000_000_000.0 / elapsedNanos, failures.get(), new ArrayList<>(errors));
+    }
+
+    static class Result {
+        final double transfersPerSec;
+        final int failures;
+        final List<RuntimeException> errors;
+
+        Result(double transfersPerSec, int failures, List<RuntimeException> errors) {
+            this.transfersPerSec = transfersPerSec;
+            this.failures = failures;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 낙관적 락 이체 - 버전 비교 갱신과 충돌 재시도
+ */
+@Slf4j
+@SpringBootTest
+class MemberServiceV4OptimisticTest {
+
+    public static final String MEMBER_A = "optA";
+    public static final String MEMBER_B = "optB";
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private OptimisticTransferService optimisticTransferService;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        DataSource dataSource() {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(URL);
+            dataSource.setUsername(USERNAME);
+            dataSource.setPassword(PASSWORD);
+            dataSource.setMaximumPoolSize(THREADS);
+            return dataSource;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(dataSource());
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_2(dataSource());
+        }
+
+        @Bean
+        MemberServiceV4 memberService() {
+            return new MemberServiceV4(memberRepository());
+        }
+
+        @Bean
+        OptimisticTransferService optimisticTransferService(MemberServiceV4 memberService) {
+            return new OptimisticTransferService(memberService, 100, 1, 20);
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        memberRepository.save(new Member(MEMBER_A, 100000));
+        memberRepository.save(new Member(MEMBER_B, 100000));
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+    }
+
+    @Test
+    @DisplayName("읽은 버전이 아니면 갱신하지 않고 false")
+    void updateIfVersion() {
+        Member member = memberRepository.findById(MEMBER_A);
+        assertThat(member.getVersion()).isZero();
+
+        assertThat(memberRepository.updateIfVersion(MEMBER_A, 9000, 0)).isTrue();
+        assertThat(memberRepository.updateIfVersion(MEMBER_A, 8000, 0)).isFalse();
+
+        Member updated = memberRepository.findById(MEMBER_A);
+        assertThat(updated.getMoney()).isEqualTo(9000);
+        assertThat(updated.getVersion()).isEqualTo(1);
+
+        // 일반 갱신도 버전을 올린다
+        memberRepository.update(MEMBER_A, 7000);
+        assertThat(memberRepository.updateIfVersion(MEMBER_A, 6000, 1)).isFalse();
+    }
+
+    @Test
+    @DisplayName("충돌한 이체는 롤백: 먼저 갱신한 회원도 원래대로")
+    void conflictRollsBack() {
+        // optB 를 한 번 갱신(버전 1)하고, 이체에서는 optB 를 예전 버전(0)으로 읽게 함
+        memberRepository.update(MEMBER_B, 100000);
+        MemberRepository staleReads = new MemberRepositoryV4_2(dataSource) {
+            @Override
+            public Member findById(String memberId) {
+                Member member = super.findById(memberId);
+                if (memberId.equals(MEMBER_B)) {
+                    member.setVersion(member.getVersion() - 1);
+                }
+                return member;
+            }
+        };
+        OptimisticTransferService noRetry = new OptimisticTransferService(TransactionalProxy.create(new MemberServiceV4(staleReads), transactionManager), 1, 0, 0);
+
+        // optA 갱신은 성공, optB 갱신에서 충돌
+        assertThatThrownBy(() -> noRetry.accountTransfer(MEMBER_A, MEMBER_B, 10))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(noRetry.conflicts()).isEqualTo(1);
+        assertThat(memberRepository.findById(MEMBER_A)).isEqualTo(new Member(MEMBER_A, 100000, 0));
+    }
+
+    @Test
+    @DisplayName("반대 방향 동시 이체도 재시도로 모두 성공하고 잔액이 보존된다")
+    void concurrentTransfers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean forward = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    optimisticTransferService.accountTransfer(forward ? MEMBER_A : MEMBER_B, forward ? MEMBER_B : MEMBER_A, 10);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        log.info("conflicts={}", optimisticTransferService.conflicts());
+
+        Member memberA = memberRepository.findById(MEMBER_A);
+        Member memberB = memberRepository.findById(MEMBER_B);
+        assertThat(memberA.getMoney()).isEqualTo(100000);
+        assertThat(memberB.getMoney()).isEqualTo(100000);
+        // 성공한 이체마다 두 회원 버전이 하나씩 올라감
+        assertThat(memberA.getVersion()).isEqualTo(THREADS * TRANSFERS_PER_THREAD);
+        assertThat(memberB.getVersion()).isEqualTo(THREADS * TRANSFERS_PER_THREAD);
+    }
+}
@@ -122,4 +122,36 @@ class MemberServiceV4Test {
         assertThat(findMemberB.getMoney()).isEqualTo(10000);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("원자적 이체")
+    void accountTransferAtomic() {
+        // given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        // when
+        memberService.accountTransferAtomic(MEMBER_A, MEMBER_B, 2000);
+
+        // then
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("원자적 이체 - 잔액 부족, 이체 중 예외 발생 시 롤백")
+    void accountTransferAtomicEx() {
+        // given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+
+        // when
+        assertThatThrownBy(() -> memberService.accountTransferAtomic(MEMBER_A, MEMBER_EX, 20000))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> memberService.accountTransferAtomic(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        // then
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+    }
+}
@@ -0,0 +1,84 @@
+package hello.jdbc.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedLockManagerTest {
+
+    @Test
+    void stripesRoundedToPowerOfTwo() {
+        assertThat(new StripedLockManager(1, false).stripes()).isEqualTo(1);
+        assertThat(new StripedLockManager(5, false).stripes()).isEqualTo(8);
+        assertThat(new StripedLockManager(64, false).stripes()).isEqualTo(64);
+    }
+
+    @Test
+    void sameStripeLockedOnce() {
+        // 줄무늬 하나: 두 회원이 같은 락, 한 번만 잡아야 해제 후 다른 스레드가 잡을 수 있다
+        StripedLockManager lockManager = new StripedLockManager(1, false);
+        StripedLockManager.Locked locked = lockManager.lock("memberA", "memberB", 100);
+        try {
+            assertThat(lockManager.stats().getAcquisitions()).isEqualTo(1);
+        } finally {
+            locked.close();
+        }
+        assertThat(CompletableFuture.supplyAsync(() -> {
+            lockManager.lock("memberA", "memberB", 100).close();
+            return true;
+        }).join()).isTrue();
+    }
+
+    @Test
+    void timeout() throws Exception {
+        StripedLockManager lockManager = new StripedLockManager(16, false);
+        StripedLockManager.Locked locked = lockManager.lock("memberA", "memberB", 100);
+        try {
+            Future<?> other = Executors.newSingleThreadExecutor()
+                    .submit(() -> lockManager.lock("memberB", "memberC", 50));
+            assertThatThrownBy(other::get).hasCauseInstanceOf(CannotAcquireLockException.class);
+        } finally {
+            locked.close();
+        }
+        assertThat(lockManager.stats().getTimeouts()).isEqualTo(1);
+        // 첫 락만 잡고 실패했어도 해제되어 있어야 함
+        lockManager.lock("memberC", "memberD", 100).close();
+    }
+
+    @Test
+    void oppositeOrderNoDeadlock() throws Exception {
+        StripedLockManager lockManager = new StripedLockManager(4, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            boolean forward = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    StripedLockManager.Locked locked =
+                            lockManager.lock(forward ? "memberA" : "memberB", forward ? "memberB" : "memberA", 5000);
+                    try {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        inside.decrementAndGet();
+                    } finally {
+                        locked.close();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        assertThat(maxInside).hasValue(1);
+    }
+}
@@ -0,0 +1,127 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.TransferResult;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 그룹 커밋 이체 엔진
+ */
+@Slf4j
+class TransferEngineTest {
+
+    public static final String MEMBER_A = "engineA";
+    public static final String MEMBER_B = "engineB";
+    public static final String MEMBER_C = "engineC";
+
+    private HikariDataSource dataSource;
+    private MemberRepository memberRepository;
+    private TransferEngine engine;
+
+    @BeforeEach
+    void before() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+
+        memberRepository = new MemberRepositoryV4_2(dataSource);
+        engine = new TransferEngine(new DataSourceTransactionManager(dataSource), memberRepository, 64, 20, 10000);
+    }
+
+    @AfterEach
+    void after() {
+        engine.close();
+        memberRepository.deleteAll(List.of(MEMBER_A, MEMBER_B, MEMBER_C));
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("여러 이체를 배치로 묶어 처리")
+    void batchTransfer() throws Exception {
+        // given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        // when
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            futures.add(i % 2 == 0
+                    ? engine.submit(MEMBER_A, MEMBER_B, 10)
+                    : engine.submit(MEMBER_B, MEMBER_A, 30));
+        }
+
+        // then
+        for (CompletableFuture<TransferResult> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        }
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000 + 250 * 20);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000 - 250 * 20);
+    }
+
+    @Test
+    @DisplayName("검증 실패한 이체만 실패, 같은 배치의 나머지는 반영")
+    void isolateFailure() throws Exception {
+        // given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 0));
+        memberRepository.save(new Member(MEMBER_C, 0));
+
+        // when
+        CompletableFuture<TransferResult> ok = engine.submit(MEMBER_A, MEMBER_B, 1000);
+        CompletableFuture<TransferResult> insufficient = engine.submit(MEMBER_C, MEMBER_A, 1000);
+        CompletableFuture<TransferResult> notFound = engine.submit(MEMBER_A, "engineX", 1000);
+        // 앞 이체의 입금에 기대는 이체 - 단독 재시도에서 성공
+        CompletableFuture<TransferResult> chained = engine.submit(MEMBER_B, MEMBER_C, 500);
+
+        // then
+        assertThat(ok.get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(insufficient.get(10, TimeUnit.SECONDS).isSuccess()).isFalse();
+        assertThat(notFound.get(10, TimeUnit.SECONDS).isSuccess()).isFalse();
+        assertThat(chained.get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(500);
+        assertThat(memberRepository.findById(MEMBER_C).getMoney()).isEqualTo(500);
+    }
+
+    @Test
+    @DisplayName("작업 스레드가 인터럽트되면 남은 요청은 모두 예외로 완료")
+    void interruptedWorkerFailsPending() throws Exception {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(engine.submit(MEMBER_A, MEMBER_B, 1));
+        }
+
+        Thread worker = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("transfer-engine") && thread.isAlive())
+                .findFirst().orElseThrow();
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(worker.isAlive()).isFalse();
+        // 인터럽트 전에 커밋된 이체는 성공, 나머지는 예외 - 완료되지 않은 요청은 없다
+        for (CompletableFuture<TransferResult> future : futures) {
+            assertThat(future).isDone();
+        }
+        assertThat(engine.submit(MEMBER_A, MEMBER_B, 1)).isCompletedExceptionally();
+    }
+}
@@ -0,0 +1,169 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.Transfer;
+import hello.jdbc.domain.TransferResult;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Flow 이체 처리 단계
+ */
+@Slf4j
+@SpringBootTest
+class TransferProcessorTest {
+
+    public static final String MEMBER_A = "flowA";
+    public static final String MEMBER_B = "flowB";
+    public static final String MEMBER_C = "flowC";
+    public static final String MEMBER_D = "flowD";
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MemberServiceV4 memberService;
+
+    private ExecutorService executor;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+
+        public TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_2(dataSource);
+        }
+
+        @Bean
+        MemberServiceV4 memberService() {
+            return new MemberServiceV4(memberRepository());
+        }
+    }
+
+    @BeforeEach
+    void before() {
+        executor = Executors.newFixedThreadPool(4);
+        memberRepository.save(new Member(MEMBER_A, 100000));
+        memberRepository.save(new Member(MEMBER_B, 0));
+        memberRepository.save(new Member(MEMBER_C, 100000));
+        memberRepository.save(new Member(MEMBER_D, 0));
+    }
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+        memberRepository.deleteAll(List.of(MEMBER_A, MEMBER_B, MEMBER_C, MEMBER_D));
+    }
+
+    @Test
+    @DisplayName("회원별로 받은 순서대로 처리하고 결과를 내보냄")
+    void orderPerAccount() throws Exception {
+        TransferProcessor processor = new TransferProcessor(memberService, executor, 4);
+        ResultCollector collector = new ResultCollector(2);
+        processor.subscribe(collector);
+
+        try (SubmissionPublisher<Transfer> source = new SubmissionPublisher<>()) {
+            source.subscribe(processor);
+            for (int money = 1; money <= 100; money++) {
+                source.submit(new Transfer(MEMBER_A, MEMBER_B, money));
+                source.submit(new Transfer(MEMBER_C, MEMBER_D, money));
+            }
+        }
+
+        List<TransferResult> results = collector.done.get(30, TimeUnit.SECONDS);
+        assertThat(results).hasSize(200).allMatch(TransferResult::isSuccess);
+        assertThat(moneyOf(results, MEMBER_A)).isSorted().hasSize(100);
+        assertThat(moneyOf(results, MEMBER_C)).isSorted().hasSize(100);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(5050);
+        assertThat(memberRepository.findById(MEMBER_D).getMoney()).isEqualTo(5050);
+    }
+
+    @Test
+    @DisplayName("순서가 지켜지므로 앞 이체의 입금에 기대는 이체도 성공, 잔액 부족은 실패 결과")
+    void dependentTransfers() throws Exception {
+        TransferProcessor processor = new TransferProcessor(memberService, executor, 4);
+        ResultCollector collector = new ResultCollector(1);
+        processor.subscribe(collector);
+
+        try (SubmissionPublisher<Transfer> source = new SubmissionPublisher<>()) {
+            source.subscribe(processor);
+            source.submit(new Transfer(MEMBER_A, MEMBER_B, 1000));
+            source.submit(new Transfer(MEMBER_B, MEMBER_D, 1000));
+            source.submit(new Transfer(MEMBER_B, MEMBER_D, 1));
+        }
+
+        List<TransferResult> results = collector.done.get(30, TimeUnit.SECONDS);
+        assertThat(results).extracting(TransferResult::isSuccess).containsExactly(true, true, false);
+        assertThat(memberRepository.findById(MEMBER_D).getMoney()).isEqualTo(1000);
+    }
+
+    private static List<Integer> moneyOf(List<TransferResult> results, String fromId) {
+        List<Integer> money = new ArrayList<>();
+        for (TransferResult result : results) {
+            if (result.getTransfer().getFromId().equals(fromId)) {
+                money.add(result.getTransfer().getMoney());
+            }
+        }
+        return money;
+    }
+
+    /**
+     * batch 개씩 요청하는 구독자
+     */
+    static class ResultCollector implements Flow.Subscriber<TransferResult> {
+        final CompletableFuture<List<TransferResult>> done = new CompletableFuture<>();
+        private final List<TransferResult> results = new CopyOnWriteArrayList<>();
+        private final int batch;
+        private Flow.Subscription subscription;
+        private int received;
+
+        ResultCollector(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(TransferResult item) {
+            results.add(item);
+            if (++received % batch == 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(results);
+        }
+    }
+}
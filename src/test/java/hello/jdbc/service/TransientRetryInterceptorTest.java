@@ -0,0 +1,153 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransientRetryInterceptorTest {
+
+    static final String MEMBER_A = "retryA";
+    static final String MEMBER_B = "retryB";
+
+    static HikariDataSource dataSource;
+
+    @BeforeAll
+    static void beforeAll() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        dataSource.close();
+    }
+
+    @AfterEach
+    void after() {
+        MemberRepository memberRepository = new MemberRepositoryV4_2(dataSource);
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+    }
+
+    @Test
+    void retriesTransientUntilSuccess() {
+        TransientRetryInterceptor interceptor = new TransientRetryInterceptor(5, 1, 5, 100, 60_000);
+        AtomicInteger calls = new AtomicInteger();
+        Task task = withRetry(interceptor, () -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                throw new DeadlockLoserDataAccessException("deadlock", null);
+            }
+            if (call == 2) {
+                throw new CannotAcquireLockException("lock timeout");
+            }
+            return "ok";
+        });
+
+        assertThat(task.run()).isEqualTo("ok");
+        TransientRetryInterceptor.Stats stats = interceptor.stats();
+        assertThat(stats.getAttempts()).isEqualTo(3);
+        assertThat(stats.retries()).isEqualTo(2);
+        assertThat(stats.getSuccesses()).isEqualTo(1);
+        assertThat(stats.getRetriedSuccesses()).isEqualTo(1);
+    }
+
+    @Test
+    void nonTransientNotRetried() {
+        TransientRetryInterceptor interceptor = new TransientRetryInterceptor(5, 0, 0, 100, 60_000);
+        Task task = withRetry(interceptor, () -> {
+            throw new DataIntegrityViolationException("duplicate");
+        });
+
+        assertThatThrownBy(task::run).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(interceptor.stats().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void retryBudgetLimitsRetries() {
+        // 구간 예산 3: 계속 실패하는 호출 두 번 -> 첫 호출이 재시도 3번을 다 쓰고, 둘째 호출은 재시도 없이 실패
+        TransientRetryInterceptor interceptor = new TransientRetryInterceptor(10, 0, 0, 3, 60_000);
+        Task task = withRetry(interceptor, () -> {
+            throw new CannotAcquireLockException("lock timeout");
+        });
+
+        assertThatThrownBy(task::run).isInstanceOf(CannotAcquireLockException.class);
+        assertThatThrownBy(task::run).isInstanceOf(CannotAcquireLockException.class);
+        TransientRetryInterceptor.Stats stats = interceptor.stats();
+        assertThat(stats.getAttempts()).isEqualTo(4 + 1);
+        assertThat(stats.getBudgetExhausted()).isEqualTo(2);
+        assertThat(stats.getSuccesses()).isZero();
+    }
+
+    @Test
+    void rerunsWholeTransaction() {
+        // 첫 입금에서 락 획득 실패: 출금까지 롤백된 뒤 새 트랜잭션으로 다시 이체
+        AtomicInteger deposits = new AtomicInteger();
+        List<Boolean> inTransaction = new CopyOnWriteArrayList<>();
+        MemberRepository memberRepository = new MemberRepositoryV4_2(dataSource) {
+            @Override
+            public boolean deposit(String memberId, int money) {
+                inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                if (deposits.incrementAndGet() == 1) {
+                    throw new CannotAcquireLockException("lock timeout");
+                }
+                return super.deposit(memberId, money);
+            }
+        };
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        TransientRetryInterceptor interceptor = new TransientRetryInterceptor(3, 1, 5, 100, 60_000);
+        MemberServiceV4 memberService = TransactionalProxy.create(
+                new MemberServiceV4(memberRepository), new DataSourceTransactionManager(dataSource), interceptor);
+
+        memberService.accountTransferAtomic(MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000);
+        assertThat(interceptor.stats().getRetriedSuccesses()).isEqualTo(1);
+        // 재시도도 트랜잭션 인터셉터를 거친다
+        assertThat(inTransaction).containsExactly(true, true);
+    }
+
+    private static Task withRetry(TransientRetryInterceptor interceptor, Supplier<String> body) {
+        ProxyFactory proxyFactory = new ProxyFactory(new Task(body));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return (Task) proxyFactory.getProxy();
+    }
+
+    static class Task {
+        private final Supplier<String> body;
+
+        Task(Supplier<String> body) {
+            this.body = body;
+        }
+
+        public String run() {
+            return body.get();
+        }
+    }
+}